@@ -0,0 +1,116 @@
+/* ConcurrentDisjointSetsBench.java */
+
+/**
+ * The ConcurrentDisjointSetsBench class measures the throughput of
+ * set.ConcurrentDisjointSets at 1, 2, 4, ... 64 threads.  The same list of
+ * random operations on n elements, three unionElements() for every sameSet(),
+ * is split evenly between the threads; the best of a few runs is reported in
+ * millions of operations per second, next to the sequential DisjointSets on
+ * the same list.
+ *
+ * Thread counts above the number of processors are still run, to show the
+ * cost of oversubscription.
+ *
+ *   javac set/*.java ConcurrentDisjointSetsBench.java
+ *   java -cp . ConcurrentDisjointSetsBench [elements [operations]]
+ */
+
+import set.*;
+import java.util.Random;
+
+public class ConcurrentDisjointSetsBench {
+
+  private static final int ROUNDS = 3;
+  private static final int MAX_THREADS = 64;
+
+  /**
+   * run() performs operations [lo, hi) of ops on s:  every fourth is a
+   * sameSet(), the rest are unionElements().
+   */
+  private static int run(ConcurrentDisjointSets s, int[] ops, int lo,
+                         int hi) {
+    int hits = 0;
+    for (int i = lo; i < hi; i++) {
+      int a = ops[2 * i];
+      int b = ops[2 * i + 1];
+      if ((i & 3) == 3 ? s.sameSet(a, b) : s.unionElements(a, b)) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+
+  /**
+   * time() returns the best time, in nanoseconds, of ROUNDS runs of all
+   * operations split between "threads" threads, each on fresh sets.
+   */
+  private static long time(int n, final int[] ops, final int count,
+                           final int threads) throws InterruptedException {
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r <= ROUNDS; r++) {
+      final ConcurrentDisjointSets s = new ConcurrentDisjointSets(n);
+      Thread[] workers = new Thread[threads];
+      long t0 = System.nanoTime();
+      for (int t = 0; t < threads; t++) {
+        final int lo = (int) ((long) count * t / threads);
+        final int hi = (int) ((long) count * (t + 1) / threads);
+        workers[t] = new Thread(() -> run(s, ops, lo, hi));
+        workers[t].start();
+      }
+      for (int t = 0; t < threads; t++) {
+        workers[t].join();
+      }
+      // The first run only warms up.
+      if (r > 0) {
+        best = Math.min(best, System.nanoTime() - t0);
+      }
+    }
+    return best;
+  }
+
+  /**
+   * timeSequential() is time() for the sequential DisjointSets.
+   */
+  private static long timeSequential(int n, int[] ops, int count) {
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r <= ROUNDS; r++) {
+      DisjointSets s = new DisjointSets(n);
+      long t0 = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        int a = ops[2 * i];
+        int b = ops[2 * i + 1];
+        if ((i & 3) == 3) {
+          s.find(a);
+          s.find(b);
+        } else {
+          s.unionElements(a, b);
+        }
+      }
+      if (r > 0) {
+        best = Math.min(best, System.nanoTime() - t0);
+      }
+    }
+    return best;
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 22;
+    int count = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 23;
+
+    Random random = new Random(3);
+    int[] ops = new int[2 * count];
+    for (int i = 0; i < ops.length; i++) {
+      ops[i] = random.nextInt(n);
+    }
+
+    System.out.println(n + " elements, " + count + " operations, " +
+                       Runtime.getRuntime().availableProcessors() +
+                       " processors");
+    System.out.printf("%-12s %10.1f Mops/s%n", "sequential",
+                      count * 1e3 / timeSequential(n, ops, count));
+    for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+      System.out.printf("%-12s %10.1f Mops/s%n", threads + " threads",
+                        count * 1e3 / time(n, ops, count, threads));
+    }
+  }
+}
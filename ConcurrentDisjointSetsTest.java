@@ -0,0 +1,232 @@
+/* ConcurrentDisjointSetsTest.java */
+
+/**
+ * The ConcurrentDisjointSetsTest class checks set.ConcurrentDisjointSets
+ * under contention.  Like a jcstress test, each race is repeated many times
+ * with every thread released at once by a barrier, and the outcome of every
+ * repetition is checked:
+ *
+ *  - same pair:  every thread unites the same two elements; exactly one
+ *    unionElements() may return true.
+ *  - ring:       thread t unites t and t + 1 (mod the thread count); exactly
+ *    threads - 1 calls may return true, and all elements end up together.
+ *  - bulk:       every thread unites random pairs of a large set and checks
+ *    with sameSet() that each pair it united stays together; afterward the
+ *    sets must match a sequential DisjointSets given the same pairs, and the
+ *    number of true results must equal the number of merges.
+ *
+ * The test exits with status 1 if any check fails.
+ *
+ *   javac set/*.java ConcurrentDisjointSetsTest.java
+ *   java -cp . ConcurrentDisjointSetsTest [threads [repetitions]]
+ */
+
+import set.*;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentDisjointSetsTest {
+
+  /** One thread's part of a race. */
+  private interface Actor {
+    boolean act(ConcurrentDisjointSets s, int thread);
+  }
+
+  /** Checks a race's outcome; returns null if it is allowed. */
+  private interface Arbiter {
+    String check(ConcurrentDisjointSets s, int successes);
+  }
+
+  /**
+   * race() runs actor on "threads" threads against fresh sets of
+   * "elements" elements, "repetitions" times, and returns the number of
+   * repetitions whose outcome arbiter rejects.
+   */
+  private static int race(String name, final int threads, int repetitions,
+                          final int elements, final Actor actor,
+                          Arbiter arbiter) {
+    final ConcurrentDisjointSets[] sets = new ConcurrentDisjointSets[1];
+    final AtomicInteger successes = new AtomicInteger();
+    final CyclicBarrier start = new CyclicBarrier(threads + 1);
+    final CyclicBarrier end = new CyclicBarrier(threads + 1);
+    // Set before the last start, so the barrier publishes it.
+    final boolean[] stop = { false };
+
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      workers[t] = new Thread(() -> {
+        try {
+          while (true) {
+            start.await();
+            if (stop[0]) {
+              return;
+            }
+            if (actor.act(sets[0], thread)) {
+              successes.incrementAndGet();
+            }
+            end.await();
+          }
+        } catch (InterruptedException | BrokenBarrierException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      workers[t].start();
+    }
+
+    int failures = 0;
+    String firstFailure = null;
+    try {
+      for (int r = 0; r < repetitions; r++) {
+        sets[0] = new ConcurrentDisjointSets(elements);
+        successes.set(0);
+        start.await();
+        end.await();
+        String problem = arbiter.check(sets[0], successes.get());
+        if (problem != null) {
+          failures++;
+          if (firstFailure == null) {
+            firstFailure = problem;
+          }
+        }
+      }
+      stop[0] = true;
+      start.await();
+      for (int t = 0; t < threads; t++) {
+        workers[t].join();
+      }
+    } catch (InterruptedException | BrokenBarrierException e) {
+      throw new RuntimeException(e);
+    }
+
+    System.out.println(name + ": " + (repetitions - failures) + " of " +
+                       repetitions + " repetitions ok" +
+                       (firstFailure == null ? "" : "; " + firstFailure));
+    return failures;
+  }
+
+  /**
+   * bulk() has every thread unite "unions" random pairs of n elements, and
+   * returns the number of failed checks.
+   */
+  private static int bulk(final int threads, final int n, final int unions) {
+    final ConcurrentDisjointSets sets = new ConcurrentDisjointSets(n);
+    final int[][] pairs = new int[threads][2 * unions];
+    final AtomicInteger successes = new AtomicInteger();
+    final AtomicInteger lost = new AtomicInteger();
+    Random random = new Random(5);
+    for (int t = 0; t < threads; t++) {
+      for (int i = 0; i < 2 * unions; i++) {
+        pairs[t][i] = random.nextInt(n);
+      }
+    }
+
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final int[] mine = pairs[t];
+      workers[t] = new Thread(() -> {
+        int merged = 0;
+        for (int i = 0; i < 2 * unions; i += 2) {
+          if (sets.unionElements(mine[i], mine[i + 1])) {
+            merged++;
+          }
+          // A pair united earlier, by this thread, must still be together.
+          int k = i / 2;
+          int j = 2 * ((k * 7) % (k + 1));
+          if (!sets.sameSet(mine[j], mine[j + 1])) {
+            lost.incrementAndGet();
+          }
+        }
+        successes.addAndGet(merged);
+      });
+      workers[t].start();
+    }
+    try {
+      for (int t = 0; t < threads; t++) {
+        workers[t].join();
+      }
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+
+    DisjointSets expected = new DisjointSets(n);
+    int merges = 0;
+    for (int t = 0; t < threads; t++) {
+      for (int i = 0; i < 2 * unions; i += 2) {
+        if (expected.unionElements(pairs[t][i], pairs[t][i + 1])) {
+          merges++;
+        }
+      }
+    }
+
+    int failures = lost.get();
+    if (successes.get() != merges) {
+      failures++;
+    }
+    // Same partition:  x and its expected root are together, and elements
+    // with different expected roots are apart.
+    int[] rootOf = new int[n];
+    for (int x = 0; x < n; x++) {
+      rootOf[x] = -1;
+    }
+    for (int x = 0; x < n; x++) {
+      int e = expected.find(x);
+      int c = sets.find(x);
+      if (rootOf[e] < 0) {
+        rootOf[e] = c;
+      } else if (rootOf[e] != c) {
+        failures++;
+      }
+    }
+    boolean[] used = new boolean[n];
+    for (int x = 0; x < n; x++) {
+      if (rootOf[x] >= 0) {
+        if (used[rootOf[x]]) {
+          failures++;
+        }
+        used[rootOf[x]] = true;
+      }
+    }
+
+    System.out.println("bulk: " + threads + " threads, " + successes.get() +
+                       " merges (expected " + merges + "), " + lost.get() +
+                       " pairs seen apart, " + (failures == 0 ? "ok" :
+                       failures + " failures"));
+    return failures;
+  }
+
+  public static void main(String[] args) {
+    int cores = Runtime.getRuntime().availableProcessors();
+    final int threads = args.length > 0 ? Integer.parseInt(args[0]) :
+        Math.max(4, cores);
+    int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+    int failures = 0;
+    failures += race("same pair", threads, repetitions, 2,
+                     (s, t) -> s.unionElements(t & 1, 1 - (t & 1)),
+                     (s, successes) -> successes == 1 ? null :
+                         successes + " threads merged the same pair");
+    failures += race("ring", threads, repetitions, threads,
+                     (s, t) -> s.unionElements(t, (t + 1) % threads),
+                     (s, successes) -> {
+                       if (successes != threads - 1) {
+                         return successes + " merges in a ring of " + threads;
+                       }
+                       for (int x = 1; x < threads; x++) {
+                         if (!s.sameSet(0, x)) {
+                           return "ring left " + x + " apart";
+                         }
+                       }
+                       return null;
+                     });
+    failures += bulk(threads, 1 << 16, 1 << 16);
+
+    if (failures > 0) {
+      System.out.println("ConcurrentDisjointSets FAILED");
+      System.exit(1);
+    }
+    System.out.println("ConcurrentDisjointSets passed");
+  }
+}
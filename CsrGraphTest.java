@@ -0,0 +1,183 @@
+/* CsrGraphTest.java */
+
+/**
+ * The CsrGraphTest class tests graph.CsrGraph snapshots made by
+ * WUGraph.freeze():
+ *
+ *  - rows:   for every vertex, the snapshot's vertex, id, degree and row
+ *    (targets and weights, in order) must match getVertices(), degree() and
+ *    getNeighbors() of the graph, for a random graph with self-edges,
+ *    isolated vertices and vertices and edges removed before freezing;
+ *  - frozen: after the graph is changed (edges added, reweighted and
+ *    removed, vertices removed and added), the snapshot must be unchanged;
+ *  - ties:   with many equal weights, Kruskal's forest of the snapshot must
+ *    be the very same edges as Kruskal's forest of the graph.
+ *
+ * The test exits with status 1 if any check fails.
+ *
+ *   javac graph/*.java graphalg/*.java set/*.java CsrGraphTest.java
+ *   java -cp . CsrGraphTest
+ */
+
+import graph.*;
+import graphalg.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class CsrGraphTest {
+
+  private static int errors = 0;
+
+  private static void check(boolean ok, String what) {
+    if (!ok) {
+      if (errors < 10) {
+        System.out.println("FAILED: " + what);
+      }
+      errors++;
+    }
+  }
+
+  /**
+   * randomGraph() returns a graph on verts with about "m" random edges,
+   * weights in [0, range), some self-edges, and some vertices and edges
+   * removed again.
+   */
+  private static WUGraph randomGraph(Object[] verts, int m, int range,
+                                     Random random) {
+    int n = verts.length;
+    WUGraph g = new WUGraph();
+    for (int i = 0; i < n; i++) {
+      g.addVertex(verts[i]);
+    }
+    for (int i = 0; i < m; i++) {
+      Object u = verts[random.nextInt(n)];
+      Object v = random.nextInt(20) == 0 ? u : verts[random.nextInt(n)];
+      g.addEdge(u, v, random.nextInt(range));
+    }
+    for (int i = 0; i < m / 10; i++) {
+      g.removeEdge(verts[random.nextInt(n)], verts[random.nextInt(n)]);
+    }
+    for (int i = 0; i < n / 10; i++) {
+      g.removeVertex(verts[random.nextInt(n)]);
+    }
+    // Re-added vertices come back isolated.
+    for (int i = 0; i < n / 20; i++) {
+      g.addVertex(verts[random.nextInt(n)]);
+    }
+    return g;
+  }
+
+  /**
+   * checkRows() checks that snapshot c holds exactly the vertices and rows
+   * that g has now.
+   */
+  private static void checkRows(WUGraph g, CsrGraph c) {
+    Object[] verts = g.getVertices();
+    check(c.vertexCount() == verts.length, "vertexCount()");
+    check(c.edgeCount() == g.edgeCount(), "edgeCount()");
+    check(Arrays.equals(c.getVertices(), verts), "getVertices()");
+    check(c.id(new Object()) == -1, "id() of a non-vertex");
+    for (int i = 0; i < verts.length; i++) {
+      check(c.vertex(i) == verts[i], "vertex(" + i + ")");
+      check(c.id(verts[i]) == i, "id() of vertex " + i);
+      check(c.degree(i) == g.degree(verts[i]), "degree(" + i + ")");
+      check(c.endSlot(i) - c.firstSlot(i) == c.degree(i), "row length");
+      Neighbors neigh = g.getNeighbors(verts[i]);
+      if (neigh == null) {
+        check(c.degree(i) == 0, "row of isolated vertex " + i);
+        continue;
+      }
+      int s = c.firstSlot(i);
+      for (int k = 0; k < neigh.neighborList.length; k++, s++) {
+        check(c.vertex(c.target(s)) == neigh.neighborList[k],
+              "target " + k + " of row " + i);
+        check(c.weight(s) == neigh.weightList[k],
+              "weight " + k + " of row " + i);
+      }
+    }
+  }
+
+  private static void rowsAndFrozen() {
+    Random random = new Random(29);
+    Object[] verts = new Object[300];
+    for (int i = 0; i < verts.length; i++) {
+      verts[i] = Integer.valueOf(i);
+    }
+    WUGraph g = randomGraph(verts, 2000, 1000, random);
+    CsrGraph c = g.freeze();
+    checkRows(g, c);
+
+    // Snapshot the snapshot's arrays, then change g every way we can.
+    int n = c.vertexCount();
+    Object[] before = c.getVertices();
+    int[] degrees = new int[n];
+    int slots = c.endSlot(n - 1);
+    int[] targets = new int[slots];
+    int[] weights = new int[slots];
+    for (int i = 0; i < n; i++) {
+      degrees[i] = c.degree(i);
+    }
+    for (int s = 0; s < slots; s++) {
+      targets[s] = c.target(s);
+      weights[s] = c.weight(s);
+    }
+    for (int i = 0; i < 500; i++) {
+      Object u = verts[random.nextInt(verts.length)];
+      Object v = verts[random.nextInt(verts.length)];
+      switch (random.nextInt(4)) {
+      case 0:
+        g.addEdge(u, v, random.nextInt(1000));
+        break;
+      case 1:
+        g.removeEdge(u, v);
+        break;
+      case 2:
+        g.removeVertex(u);
+        break;
+      default:
+        g.addVertex(u);
+        break;
+      }
+    }
+    check(c.vertexCount() == n && Arrays.equals(c.getVertices(), before),
+          "snapshot vertices changed");
+    boolean same = c.endSlot(n - 1) == slots;
+    for (int i = 0; i < n && same; i++) {
+      same = c.degree(i) == degrees[i];
+    }
+    for (int s = 0; s < slots && same; s++) {
+      same = c.target(s) == targets[s] && c.weight(s) == weights[s];
+    }
+    check(same, "snapshot rows changed");
+    checkRows(g, g.freeze());
+    System.out.println("rows and frozen: " + errors + " errors so far");
+  }
+
+  private static void ties() {
+    Random random = new Random(31);
+    Object[] verts = new Object[500];
+    for (int i = 0; i < verts.length; i++) {
+      verts[i] = Integer.valueOf(i);
+    }
+    // Three weights for 3000 edges:  almost every choice is a tie.
+    WUGraph g = randomGraph(verts, 3000, 3, random);
+    MstResult a = Kruskal.minSpanForest(g);
+    MstResult b = Kruskal.minSpanForest(g.freeze());
+    check(Arrays.equals(a.vertices, b.vertices), "forest vertices differ");
+    check(Arrays.equals(a.u, b.u) && Arrays.equals(a.v, b.v) &&
+          Arrays.equals(a.weight, b.weight),
+          "snapshot forest has different edges");
+    System.out.println("ties: forest of " + a.edgeCount() + " edges, " +
+                       errors + " errors so far");
+  }
+
+  public static void main(String[] args) {
+    rowsAndFrozen();
+    ties();
+    if (errors > 0) {
+      System.out.println("CsrGraph FAILED");
+      System.exit(1);
+    }
+    System.out.println("CsrGraph passed");
+  }
+}
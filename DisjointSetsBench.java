@@ -0,0 +1,191 @@
+/* DisjointSetsBench.java */
+
+/**
+ * The DisjointSetsBench class times set.DisjointSets (iterative find with
+ * path halving) against the recursive, fully compressing find it replaced,
+ * on three sequences of operations over n elements:
+ *
+ *  - random:    n unionElements() of random pairs, then n find()s of random
+ *               elements;
+ *  - binomial:  unions in rounds of sets of equal size (1+1, 2+2, 4+4, ...),
+ *               each through find()s of elements at opposite ends, so every
+ *               tree is as deep as union by size allows; then a find() of
+ *               every element, deepest first;
+ *  - chain:     unionElements(i, i + 1) for every i in turn, then a find()
+ *               of every element in reverse.
+ *
+ * Both structures must agree on which elements end up together.
+ *
+ *   javac set/*.java DisjointSetsBench.java
+ *   java -cp . DisjointSetsBench [elements]
+ */
+
+import set.*;
+import java.util.Random;
+
+public class DisjointSetsBench {
+
+  private static final int ROUNDS = 3;
+
+  /**
+   * The old find(), recursive with full path compression, for comparison.
+   */
+  private static class RecursiveSets {
+    private final int[] array;
+
+    RecursiveSets(int numElements) {
+      array = new int[numElements];
+      for (int i = 0; i < numElements; i++) {
+        array[i] = -1;
+      }
+    }
+
+    void union(int root1, int root2) {
+      if (array[root2] < array[root1]) {
+        array[root2] += array[root1];
+        array[root1] = root2;
+      } else {
+        array[root1] += array[root2];
+        array[root2] = root1;
+      }
+    }
+
+    boolean unionElements(int a, int b) {
+      int root1 = find(a);
+      int root2 = find(b);
+      if (root1 == root2) {
+        return false;
+      }
+      union(root1, root2);
+      return true;
+    }
+
+    int find(int x) {
+      if (array[x] < 0) {
+        return x;
+      }
+      array[x] = find(array[x]);
+      return array[x];
+    }
+  }
+
+  /**
+   * A Sets is the part of either structure that a sequence uses.
+   */
+  private interface Sets {
+    boolean unionElements(int a, int b);
+    int find(int x);
+  }
+
+  /** The operation sequences:  each runs on fresh sets of n elements. */
+  private interface Sequence {
+    long run(Sets s, int n, int[] random);
+  }
+
+  private static long randomOps(Sets s, int n, int[] random) {
+    long check = 0;
+    for (int i = 0; i + 1 < n; i += 2) {
+      if (s.unionElements(random[i], random[i + 1])) {
+        check++;
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      check += s.find(random[i]) == s.find(random[n - 1 - i]) ? 1 : 0;
+    }
+    return check;
+  }
+
+  private static long binomialOps(Sets s, int n, int[] random) {
+    for (int k = 1; k < n; k *= 2) {
+      for (int j = 0; j + k < n; j += 2 * k) {
+        // The last elements of each block are the deepest.
+        s.unionElements(j + k - 1, Math.min(j + 2 * k, n) - 1);
+      }
+    }
+    long check = 0;
+    for (int i = n - 1; i >= 0; i--) {
+      check += s.find(i);
+    }
+    return check;
+  }
+
+  private static long chainOps(Sets s, int n, int[] random) {
+    for (int i = 0; i + 1 < n; i++) {
+      s.unionElements(i, i + 1);
+    }
+    long check = 0;
+    for (int i = n - 1; i >= 0; i--) {
+      check += s.find(i) == s.find(0) ? 1 : 0;
+    }
+    return check;
+  }
+
+  private static Sets iterative(int n) {
+    final DisjointSets d = new DisjointSets(n);
+    return new Sets() {
+      public boolean unionElements(int a, int b) {
+        return d.unionElements(a, b);
+      }
+      public int find(int x) {
+        return d.find(x);
+      }
+    };
+  }
+
+  private static Sets recursive(int n) {
+    final RecursiveSets d = new RecursiveSets(n);
+    return new Sets() {
+      public boolean unionElements(int a, int b) {
+        return d.unionElements(a, b);
+      }
+      public int find(int x) {
+        return d.find(x);
+      }
+    };
+  }
+
+  /**
+   * time() runs sequence on fresh structures ROUNDS times after a warm-up,
+   * prints the best time per element for each, and returns true if both
+   * gave the same check value.
+   */
+  private static boolean time(String name, int n, int[] random,
+                              Sequence sequence) {
+    long checkIter = sequence.run(iterative(n), n, random);
+    long checkRec = sequence.run(recursive(n), n, random);
+    long bestIter = Long.MAX_VALUE;
+    long bestRec = Long.MAX_VALUE;
+    for (int r = 0; r < ROUNDS; r++) {
+      Sets s = iterative(n);
+      long t0 = System.nanoTime();
+      sequence.run(s, n, random);
+      bestIter = Math.min(bestIter, System.nanoTime() - t0);
+      s = recursive(n);
+      t0 = System.nanoTime();
+      sequence.run(s, n, random);
+      bestRec = Math.min(bestRec, System.nanoTime() - t0);
+    }
+    System.out.printf("%-10s %12.1f %12.1f%n", name,
+                      (double) bestIter / n, (double) bestRec / n);
+    return checkIter == checkRec;
+  }
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+    Random rand = new Random(17);
+    int[] random = new int[n];
+    for (int i = 0; i < n; i++) {
+      random[i] = rand.nextInt(n);
+    }
+
+    System.out.println(n + " elements, ns per element");
+    System.out.println("sequence      halving    recursive");
+    boolean ok = time("random", n, random, DisjointSetsBench::randomOps);
+    ok &= time("binomial", n, random, DisjointSetsBench::binomialOps);
+    ok &= time("chain", n, random, DisjointSetsBench::chainOps);
+    if (!ok) {
+      System.out.println("The two structures disagree.");
+      System.exit(1);
+    }
+  }
+}
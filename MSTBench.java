@@ -0,0 +1,205 @@
+/* MSTBench.java */
+
+/**
+ * The MSTBench class times Kruskal.minSpanTree() on a large random graph with
+ * each edge order:  the merge sort, the radix sort, the lazy heap, and the
+ * parallel merge sort at 1, 2, 4, ... threads up to the number of available
+ * processors, and the radix sort once more returning an MstResult instead of
+ * building a WUGraph.  It then times the other MST engines on the same graph,
+ * including Prim with each priority queue and Boruvka at 1, 2, 4, ...
+ * threads, and Karger-Klein-Tarjan, and repeats it all on a small, nearly
+ * complete graph.  Every run must produce a tree of the same total weight.
+ *
+ * Before that, it prints the time per edge of Kruskal (merge and radix
+ * sorts) and of Karger-Klein-Tarjan on sparse graphs of growing size, to
+ * show where the expected linear-time algorithm catches up, if it does.
+ *
+ * The graph is frozen into a CsrGraph first, so the timings cover numbering,
+ * sorting, union-find and building the tree, but no vertex hashing.  For
+ * 10^7 edges and more, give the JVM a large heap:
+ *
+ *   javac set/*.java graph/*.java graphalg/*.java MSTBench.java
+ *   java -Xmx16g -cp . MSTBench [vertices [edges [cutoff]]]
+ */
+
+import graph.*;
+import graphalg.*;
+import java.util.Random;
+
+public class MSTBench {
+
+  private static final int ROUNDS = 3;
+
+  private interface Run {
+    WUGraph mst(CsrGraph g);
+  }
+
+  private interface ForestRun {
+    MstResult forest(CsrGraph g);
+  }
+
+  private static long treeWeight(WUGraph t) {
+    long total = 0;
+    Object[] verts = t.getVertices();
+    for (int i = 0; i < verts.length; i++) {
+      Neighbors n = t.getNeighbors(verts[i]);
+      if (n != null) {
+        for (int j = 0; j < n.weightList.length; j++) {
+          total += n.weightList[j];
+        }
+      }
+    }
+    return total / 2;
+  }
+
+  /**
+   * time() runs run once to warm up, then ROUNDS more times, prints the best
+   * time, and returns the weight of the tree.
+   */
+  private static long time(String name, CsrGraph g, Run run) {
+    long weight = treeWeight(run.mst(g));
+    System.out.printf("%-16s %9.1f ms%n", name, best(g, run) / 1e6);
+    return weight;
+  }
+
+  /**
+   * timeForest() is time() for engines that return an MstResult.
+   */
+  private static long timeForest(String name, CsrGraph g, ForestRun run) {
+    long weight = run.forest(g).totalWeight;
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r < ROUNDS; r++) {
+      long t0 = System.nanoTime();
+      run.forest(g);
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    System.out.printf("%-16s %9.1f ms%n", name, best / 1e6);
+    return weight;
+  }
+
+  /**
+   * randomGraph() returns a frozen random graph on n vertices with about m
+   * random edges plus a path through every vertex, so it is connected.
+   */
+  private static CsrGraph randomGraph(int n, int m, Random random) {
+    Object[] verts = new Object[n];
+    for (int i = 0; i < n; i++) {
+      verts[i] = Integer.valueOf(i);
+    }
+    WUGraph.Builder builder = new WUGraph.Builder(n, m + n);
+    builder.addVertices(verts);
+    for (int i = 1; i < n; i++) {
+      builder.addEdge(verts[i - 1], verts[i], random.nextInt(1 << 20));
+    }
+    for (int i = 0; i < m; i++) {
+      builder.addEdge(verts[random.nextInt(n)], verts[random.nextInt(n)],
+                      random.nextInt(1 << 20));
+    }
+    return builder.build().freeze();
+  }
+
+  /**
+   * bench() times every engine on g and returns true if all the trees have
+   * the same weight.  Prim with the O(n^2) array queue only runs when g is
+   * small enough for that to finish.
+   */
+  private static boolean bench(CsrGraph g, final int cutoff) {
+    System.out.println(g.vertexCount() + " vertices, " + g.edgeCount() +
+                       " edges");
+
+    long expected = time("merge sort", g,
+                         x -> Kruskal.minSpanTree(x, Kruskal.Sort.MERGE));
+    boolean ok = true;
+    ok &= time("radix sort", g,
+               x -> Kruskal.minSpanTree(x, Kruskal.Sort.RADIX)) == expected;
+    ok &= timeForest("radix, no graph", g, Kruskal::minSpanForest) == expected;
+    ok &= time("lazy heap", g,
+               x -> Kruskal.minSpanTree(x, Kruskal.Sort.HEAP)) == expected;
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int p = 1; p < 2 * cores; p *= 2) {
+      final int threads = Math.min(p, cores);
+      ok &= time("parallel x" + threads, g,
+                 x -> Kruskal.minSpanTree(x, threads, cutoff)) == expected;
+      if (threads == cores) {
+        break;
+      }
+    }
+
+    ok &= time("filter-kruskal", g, FilterKruskal::minSpanTree) == expected;
+    ok &= time("kkt", g, KargerKleinTarjan::minSpanTree) == expected;
+    for (int p = 1; p < 2 * cores; p *= 2) {
+      final int threads = Math.min(p, cores);
+      ok &= time("boruvka x" + threads, g,
+                 x -> Boruvka.minSpanTree(x, threads)) == expected;
+      if (threads == cores) {
+        break;
+      }
+    }
+
+    Prim.Queue[] queues = Prim.Queue.values();
+    for (int i = 0; i < queues.length; i++) {
+      final Prim.Queue q = queues[i];
+      if (q == Prim.Queue.ARRAY && g.vertexCount() > 50000) {
+        continue;
+      }
+      ok &= time("prim " + q.name().toLowerCase(), g,
+                 x -> Prim.minSpanTree(x, q)) == expected;
+    }
+    System.out.println();
+    return ok;
+  }
+
+  /**
+   * crossover() times Kruskal with the merge sort and the radix sort against
+   * Karger-Klein-Tarjan on random graphs of average degree 10 and growing
+   * size, up to maxEdges edges, printing nanoseconds per edge.  The merge
+   * sort's cost per edge grows with log |E|; the others' should stay flat.
+   */
+  private static void crossover(int maxEdges, Random random) {
+    System.out.println("ns per edge      merge    radix      kkt");
+    for (int m = 1 << 16; m <= maxEdges; m *= 4) {
+      CsrGraph g = randomGraph(m / 10, m - m / 10, random);
+      double edges = g.edgeCount();
+      double merge = best(g, x -> Kruskal.minSpanTree(x, Kruskal.Sort.MERGE));
+      double radix = best(g, x -> Kruskal.minSpanTree(x, Kruskal.Sort.RADIX));
+      double kkt = best(g, KargerKleinTarjan::minSpanTree);
+      System.out.printf("%-12d %9.1f %8.1f %8.1f%n", g.edgeCount(),
+                        merge / edges, radix / edges, kkt / edges);
+    }
+    System.out.println();
+  }
+
+  /**
+   * best() runs run once to warm up, then returns its best time of ROUNDS
+   * more runs, in nanoseconds.
+   */
+  private static long best(CsrGraph g, Run run) {
+    run.mst(g);
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r < ROUNDS; r++) {
+      long t0 = System.nanoTime();
+      run.mst(g);
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    return best;
+  }
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int m = args.length > 1 ? Integer.parseInt(args[1]) : 10000000;
+    int cutoff = args.length > 2 ? Integer.parseInt(args[2]) : 8192;
+
+    Random random = new Random(23);
+    crossover(m, random);
+    boolean ok = bench(randomGraph(n, m, random), cutoff);
+
+    // A nearly complete graph, where Prim's array queue should win.
+    int dense = 2000;
+    ok &= bench(randomGraph(dense, 2 * dense * dense, random), cutoff);
+
+    if (!ok) {
+      System.out.println("Tree weights differ between runs.");
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/* OffHeapWUGTest.java */
+
+/**
+ * The OffHeapWUGTest class tests graph.OffHeapWUGraph and
+ * Kruskal.minSpanTree(OffHeapWUGraph).  OffHeapWUGraph mirrors IntWUGraph
+ * (whose own main() checks it against a reference model), so every
+ * operation is applied to both graphs, and every query must give the same
+ * answer, down to the order of getVertices() and getNeighbors():
+ *
+ *  - small: random vertex and edge insertions and removals over a few ids,
+ *    compared in full every few operations;
+ *  - large: a graph big enough to span several chunks of each off-heap
+ *    segment, with a third of its edges and some vertices removed again.
+ *
+ * After each phase, getEdges() must list every edge once, and the tree from
+ * minSpanTree() must be a spanning forest with as many edges and as much
+ * weight as Kruskal's forest of the same graph as a WUGraph.  Every graph is
+ * closed when done.  The test exits with status 1 if any check fails.
+ *
+ *   javac graph/*.java graphalg/*.java set/*.java OffHeapWUGTest.java
+ *   java -cp . OffHeapWUGTest
+ */
+
+import graph.*;
+import graphalg.*;
+import set.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class OffHeapWUGTest {
+
+  private static int errors = 0;
+
+  private static void check(boolean ok, String what) {
+    if (!ok) {
+      if (errors < 10) {
+        System.out.println("FAILED: " + what);
+      }
+      errors++;
+    }
+  }
+
+  /**
+   * apply() performs one random operation on ids [0, ids) on both graphs.
+   * Two in ten operations add a vertex, one in ten removes one, four add or
+   * reweight an edge and three remove one.
+   */
+  private static void apply(OffHeapWUGraph g, IntWUGraph expected, int ids,
+                            Random random) {
+    int u = random.nextInt(ids);
+    int v = random.nextInt(ids);
+    int r = random.nextInt(10);
+    if (r < 2) {
+      g.addVertex(u);
+      expected.addVertex(u);
+    } else if (r < 3) {
+      g.removeVertex(u);
+      expected.removeVertex(u);
+    } else if (r < 7) {
+      int weight = random.nextInt(1000);
+      g.addEdge(u, v, weight);
+      expected.addEdge(u, v, weight);
+    } else {
+      g.removeEdge(u, v);
+      expected.removeEdge(u, v);
+    }
+  }
+
+  /**
+   * compare() checks that g answers like expected:  counts and
+   * getVertices() always, and for every vertex, its degree and neighbors.
+   * If "ids" is positive, isVertex(), isEdge() and weight() are also
+   * checked for every id, and every pair of ids, below it.
+   */
+  private static void compare(OffHeapWUGraph g, IntWUGraph expected,
+                              int ids) {
+    check(g.vertexCount() == expected.vertexCount(), "vertexCount()");
+    check(g.edgeCount() == expected.edgeCount(), "edgeCount()");
+    int[] verts = g.getVertices();
+    check(Arrays.equals(verts, expected.getVertices()), "getVertices()");
+    for (int vertex : verts) {
+      check(g.degree(vertex) == expected.degree(vertex), "degree()");
+      check(Arrays.equals(g.getNeighbors(vertex),
+                          expected.getNeighbors(vertex)), "getNeighbors()");
+    }
+    for (int u = 0; u < ids; u++) {
+      check(g.isVertex(u) == expected.isVertex(u), "isVertex()");
+      for (int v = 0; v < ids; v++) {
+        check(g.isEdge(u, v) == expected.isEdge(u, v), "isEdge()");
+        check(g.weight(u, v) == expected.weight(u, v), "weight()");
+      }
+    }
+  }
+
+  /**
+   * checkEdges() checks that getEdges() lists each of g's edges once, with
+   * its weight.
+   */
+  private static void checkEdges(OffHeapWUGraph g) {
+    int[] verts = g.getVertices();
+    int m = g.edgeCount();
+    int[] us = new int[m];
+    int[] vs = new int[m];
+    int[] ws = new int[m];
+    g.getEdges(us, vs, ws);
+
+    long[] pairs = new long[m];
+    long degrees = 0;
+    for (int i = 0; i < m; i++) {
+      int u = verts[us[i]];
+      int v = verts[vs[i]];
+      check(g.weight(u, v) == ws[i] && g.isEdge(u, v), "getEdges() weight");
+      pairs[i] = ((long) Math.min(us[i], vs[i]) << 32) |
+                 Math.max(us[i], vs[i]);
+      degrees += u == v ? 1 : 2;
+    }
+    Arrays.sort(pairs);
+    for (int i = 1; i < m; i++) {
+      check(pairs[i] != pairs[i - 1], "getEdges() lists an edge twice");
+    }
+    // Distinct edges whose degrees add up to the graph's are all its edges.
+    long expectedDegrees = 0;
+    for (int vertex : verts) {
+      expectedDegrees += g.degree(vertex);
+    }
+    check(degrees == expectedDegrees, "getEdges() misses an edge");
+  }
+
+  /**
+   * checkTree() checks Kruskal.minSpanTree(g) against Kruskal's forest of
+   * the same graph built as a WUGraph.
+   */
+  private static void checkTree(OffHeapWUGraph g) {
+    int[] verts = g.getVertices();
+    int n = verts.length;
+    int m = g.edgeCount();
+    int[] us = new int[m];
+    int[] vs = new int[m];
+    int[] ws = new int[m];
+    g.getEdges(us, vs, ws);
+
+    WUGraph w = new WUGraph();
+    Integer[] boxed = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      boxed[i] = verts[i];
+      w.addVertex(boxed[i]);
+    }
+    for (int i = 0; i < m; i++) {
+      w.addEdge(boxed[us[i]], boxed[vs[i]], ws[i]);
+    }
+    MstResult expected = Kruskal.minSpanForest(w);
+
+    try (OffHeapWUGraph t = Kruskal.minSpanTree(g)) {
+      check(Arrays.equals(sorted(t.getVertices()), sorted(verts)),
+            "minSpanTree() vertices");
+      int k = t.edgeCount();
+      check(k == expected.edgeCount(), "minSpanTree() edge count");
+      int[] tu = new int[k];
+      int[] tv = new int[k];
+      int[] tw = new int[k];
+      t.getEdges(tu, tv, tw);
+      int[] tVerts = t.getVertices();
+      DisjointSets forest = new DisjointSets(tVerts.length);
+      long total = 0;
+      for (int i = 0; i < k; i++) {
+        int u = tVerts[tu[i]];
+        int v = tVerts[tv[i]];
+        check(g.isEdge(u, v) && g.weight(u, v) == tw[i],
+              "minSpanTree() edge not in the graph");
+        check(forest.unionElements(tu[i], tv[i]), "minSpanTree() cycle");
+        total += tw[i];
+      }
+      check(total == expected.totalWeight, "minSpanTree() weight " + total +
+            ", expected " + expected.totalWeight);
+    }
+  }
+
+  private static int[] sorted(int[] a) {
+    int[] b = a.clone();
+    Arrays.sort(b);
+    return b;
+  }
+
+  private static void small() {
+    int Ids = 48;
+    int Operations = 20000;
+
+    Random random = new Random(19);
+    IntWUGraph expected = new IntWUGraph();
+    try (OffHeapWUGraph g = new OffHeapWUGraph()) {
+      for (int op = 0; op < Operations; op++) {
+        apply(g, expected, Ids, random);
+        if (op % 100 == 99) {
+          compare(g, expected, Ids);
+        }
+        if (op % 1000 == 999) {
+          checkEdges(g);
+          checkTree(g);
+        }
+      }
+    }
+    System.out.println("small: " + Operations + " operations, " + errors +
+                       " errors so far");
+  }
+
+  private static void large() {
+    int n = 1 << 20;
+    int m = n;
+
+    Random random = new Random(23);
+    IntWUGraph expected = new IntWUGraph(n, m);
+    try (OffHeapWUGraph g = new OffHeapWUGraph()) {
+      for (int i = 0; i < n; i++) {
+        g.addVertex(3 * i);
+        expected.addVertex(3 * i);
+      }
+      for (int i = 0; i < m; i++) {
+        int u = 3 * random.nextInt(n);
+        int v = 3 * random.nextInt(n);
+        int weight = random.nextInt();
+        g.addEdge(u, v, weight);
+        expected.addEdge(u, v, weight);
+      }
+      compare(g, expected, 0);
+
+      for (int i = 0; i < m / 3; i++) {
+        int u = 3 * random.nextInt(n);
+        int[] neighbors = expected.getNeighbors(u);
+        if (neighbors != null) {
+          g.removeEdge(u, neighbors[0]);
+          expected.removeEdge(u, neighbors[0]);
+        }
+      }
+      for (int i = 0; i < n / 16; i++) {
+        int u = 3 * random.nextInt(n);
+        g.removeVertex(u);
+        expected.removeVertex(u);
+      }
+      compare(g, expected, 0);
+      checkEdges(g);
+      checkTree(g);
+      System.out.println("large: " + g.vertexCount() + " vertices, " +
+                         g.edgeCount() + " edges, " + errors +
+                         " errors so far");
+    }
+  }
+
+  public static void main(String[] args) {
+    small();
+    large();
+    if (errors > 0) {
+      System.out.println("OffHeapWUGraph FAILED");
+      System.exit(1);
+    }
+    System.out.println("OffHeapWUGraph passed");
+  }
+}
@@ -0,0 +1,173 @@
+/* WUGAllocBench.java */
+
+/**
+ * The WUGAllocBench class checks that WUGraph's lookup paths (isEdge,
+ * weight, addEdge and removeEdge) and its in-place neighbor scans
+ * (forEachNeighbor and NeighborCursor) allocate nothing per call, and
+ * reports how long each call takes.
+ *
+ * Allocation is measured with the JVM's per-thread allocation counter after
+ * a warm-up pass, so the numbers reflect compiled code.  Vertex objects are
+ * created up front so that no boxing happens inside the measured loops.
+ *
+ *   javac set/*.java graph/*.java graphalg/*.java WUGAllocBench.java
+ *   java -cp . WUGAllocBench
+ */
+
+import graph.*;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+public class WUGAllocBench {
+
+  private static final int VERTICES = 1000;
+  private static final int EDGES = 1 << 14;
+  private static final int CALLS = 2000000;
+  private static final int ROUNDS = 5;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /** Written by every loop so the JIT cannot discard the calls. */
+  private static long sink;
+
+  private static Object[] verts;
+  private static int[] us;
+  private static int[] vs;
+
+  private interface Op {
+    void run(WUGraph g, int calls);
+  }
+
+  private static void isEdgeLoop(WUGraph g, int calls) {
+    long s = 0;
+    for (int i = 0; i < calls; i++) {
+      int k = i & (EDGES - 1);
+      if (g.isEdge(verts[us[k]], verts[vs[k]])) {
+        s++;
+      }
+    }
+    sink += s;
+  }
+
+  private static void weightLoop(WUGraph g, int calls) {
+    long s = 0;
+    for (int i = 0; i < calls; i++) {
+      int k = i & (EDGES - 1);
+      s += g.weight(verts[us[k]], verts[vs[k]]);
+    }
+    sink += s;
+  }
+
+  private static void addRemoveLoop(WUGraph g, int calls) {
+    // Remove and re-add existing edges, so the graph's size (and therefore
+    // its arrays and tables) stays the same across the loop.
+    for (int i = 0; i < calls; i += 2) {
+      int k = i & (EDGES - 1);
+      Object u = verts[us[k]];
+      Object v = verts[vs[k]];
+      int w = g.weight(u, v);
+      g.removeEdge(u, v);
+      g.addEdge(u, v, w);
+    }
+    sink += g.edgeCount();
+  }
+
+  /** Visitor for forEachNeighbor(); one instance, so no per-call lambda. */
+  private static final NeighborVisitor SUM_WEIGHTS = new NeighborVisitor() {
+    public void visit(Object neighbor, int weight) {
+      sink += weight;
+    }
+  };
+
+  private static void forEachLoop(WUGraph g, int calls) {
+    for (int i = 0; i < calls; i++) {
+      g.forEachNeighbor(verts[i % VERTICES], SUM_WEIGHTS);
+    }
+  }
+
+  private static WUGraph.NeighborCursor cursor;
+
+  private static void cursorLoop(WUGraph g, int calls) {
+    long s = 0;
+    for (int i = 0; i < calls; i++) {
+      cursor.reset(verts[i % VERTICES]);
+      while (cursor.next()) {
+        s += cursor.weight();
+      }
+    }
+    sink += s;
+  }
+
+  private static void updateLoop(WUGraph g, int calls) {
+    for (int i = 0; i < calls; i++) {
+      int k = i & (EDGES - 1);
+      g.addEdge(verts[us[k]], verts[vs[k]], i);
+    }
+    sink += g.edgeCount();
+  }
+
+  /**
+   * measure() runs op once to warm up, then ROUNDS more times, and prints
+   * the bytes allocated and nanoseconds spent per call.  Returns true if no
+   * round allocated anything.
+   */
+  private static boolean measure(String name, WUGraph g, Op op) {
+    op.run(g, CALLS);
+
+    long minBytes = Long.MAX_VALUE;
+    long minNanos = Long.MAX_VALUE;
+    for (int r = 0; r < ROUNDS; r++) {
+      long bytes0 = THREADS.getCurrentThreadAllocatedBytes();
+      long t0 = System.nanoTime();
+      op.run(g, CALLS);
+      long t1 = System.nanoTime();
+      long bytes1 = THREADS.getCurrentThreadAllocatedBytes();
+      minBytes = Math.min(minBytes, bytes1 - bytes0);
+      minNanos = Math.min(minNanos, t1 - t0);
+    }
+
+    System.out.printf("%-18s %8.2f ns/call %8.4f bytes/call%n", name,
+                      (double) minNanos / CALLS, (double) minBytes / CALLS);
+    return minBytes == 0;
+  }
+
+  public static void main(String[] args) {
+    Random random = new Random(11);
+    WUGraph g = new WUGraph();
+
+    verts = new Object[VERTICES];
+    for (int i = 0; i < VERTICES; i++) {
+      verts[i] = Integer.valueOf(i);
+      g.addVertex(verts[i]);
+    }
+
+    // EDGES must be a power of two; about half the pairs are real edges,
+    // so isEdge() and weight() see both hits and misses.
+    us = new int[EDGES];
+    vs = new int[EDGES];
+    for (int k = 0; k < EDGES; k++) {
+      us[k] = random.nextInt(VERTICES);
+      vs[k] = random.nextInt(VERTICES);
+      if ((k & 1) == 0) {
+        g.addEdge(verts[us[k]], verts[vs[k]], random.nextInt(100));
+      }
+    }
+
+    boolean ok = true;
+    ok &= measure("isEdge()", g, WUGAllocBench::isEdgeLoop);
+    ok &= measure("weight()", g, WUGAllocBench::weightLoop);
+    ok &= measure("addEdge() update", g, WUGAllocBench::updateLoop);
+    ok &= measure("removeEdge/addEdge", g, WUGAllocBench::addRemoveLoop);
+    ok &= measure("forEachNeighbor()", g, WUGAllocBench::forEachLoop);
+    cursor = g.newCursor();
+    ok &= measure("NeighborCursor", g, WUGAllocBench::cursorLoop);
+
+    if (ok) {
+      System.out.println("No lookup path allocated.");
+    } else {
+      System.out.println("Some lookup path allocated; see bytes/call above.");
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/* WUGBuildBench.java */
+
+/**
+ * The WUGBuildBench class times loading a random graph into a WUGraph, once
+ * with addVertex() and addEdge() calls and once with a WUGraph.Builder.  It
+ * then checks, under both duplicate policies, that the Builder's graph is
+ * the same as the one sequential calls give, down to the order of
+ * getVertices() and of every vertex's neighbors; it exits with status 1 if
+ * not.
+ *
+ * The vertex and edge counts may be given on the command line; the edge list
+ * (with some duplicates) is generated up front and is not part of the timing.
+ *
+ *   javac set/*.java graph/*.java graphalg/*.java WUGBuildBench.java
+ *   java -cp . WUGBuildBench [vertices [edges]]
+ */
+
+import graph.*;
+import java.util.Random;
+
+public class WUGBuildBench {
+
+  private static final int ROUNDS = 3;
+
+  private static WUGraph incremental(Object[] verts, Object[] us, Object[] vs,
+                                     int[] ws) {
+    WUGraph g = new WUGraph();
+    for (int i = 0; i < verts.length; i++) {
+      g.addVertex(verts[i]);
+    }
+    for (int i = 0; i < us.length; i++) {
+      g.addEdge(us[i], vs[i], ws[i]);
+    }
+    return g;
+  }
+
+  /**
+   * incrementalMin() is incremental() with MIN_WEIGHT duplicates:  a
+   * repeated edge is re-added only if its new weight is smaller.
+   */
+  private static WUGraph incrementalMin(Object[] verts, Object[] us,
+                                        Object[] vs, int[] ws) {
+    WUGraph g = new WUGraph();
+    for (int i = 0; i < verts.length; i++) {
+      g.addVertex(verts[i]);
+    }
+    for (int i = 0; i < us.length; i++) {
+      if (!g.isEdge(us[i], vs[i]) || ws[i] < g.weight(us[i], vs[i])) {
+        g.addEdge(us[i], vs[i], ws[i]);
+      }
+    }
+    return g;
+  }
+
+  private static WUGraph built(Object[] verts, Object[] us, Object[] vs,
+                               int[] ws) {
+    return built(verts, us, vs, ws, WUGraph.Builder.Duplicates.LAST_WINS);
+  }
+
+  private static WUGraph built(Object[] verts, Object[] us, Object[] vs,
+                               int[] ws,
+                               WUGraph.Builder.Duplicates policy) {
+    return new WUGraph.Builder(verts.length, us.length)
+        .duplicates(policy)
+        .addVertices(verts)
+        .addEdges(us, vs, ws)
+        .build();
+  }
+
+  /**
+   * difference() returns null if a and b have the same vertices and the
+   * same neighbors, with the same weights, in the same order; otherwise it
+   * describes the first difference found.
+   */
+  private static String difference(WUGraph a, WUGraph b) {
+    if (a.vertexCount() != b.vertexCount() ||
+        a.edgeCount() != b.edgeCount()) {
+      return "sizes differ";
+    }
+    Object[] va = a.getVertices();
+    Object[] vb = b.getVertices();
+    for (int i = 0; i < va.length; i++) {
+      if (va[i] != vb[i]) {
+        return "getVertices() differs at " + i;
+      }
+    }
+    for (int i = 0; i < va.length; i++) {
+      Neighbors na = a.getNeighbors(va[i]);
+      Neighbors nb = b.getNeighbors(va[i]);
+      if (na == null || nb == null) {
+        if (na != nb) {
+          return "degree of " + va[i] + " differs";
+        }
+        continue;
+      }
+      if (na.neighborList.length != nb.neighborList.length) {
+        return "degree of " + va[i] + " differs";
+      }
+      for (int k = 0; k < na.neighborList.length; k++) {
+        if (na.neighborList[k] != nb.neighborList[k] ||
+            na.weightList[k] != nb.weightList[k]) {
+          return "neighbor " + k + " of " + va[i] + " differs";
+        }
+      }
+    }
+    return null;
+  }
+
+  public static void main(String[] args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+    int m = args.length > 1 ? Integer.parseInt(args[1]) : 4000000;
+
+    Random random = new Random(17);
+    Object[] verts = new Object[n];
+    for (int i = 0; i < n; i++) {
+      verts[i] = Integer.valueOf(i);
+    }
+    Object[] us = new Object[m];
+    Object[] vs = new Object[m];
+    int[] ws = new int[m];
+    for (int i = 0; i < m; i++) {
+      us[i] = verts[random.nextInt(n)];
+      vs[i] = verts[random.nextInt(n)];
+      ws[i] = random.nextInt(1000);
+    }
+
+    long bestAdd = Long.MAX_VALUE;
+    long bestBuild = Long.MAX_VALUE;
+    int addEdges = 0;
+    int buildEdges = 0;
+    for (int r = 0; r < ROUNDS; r++) {
+      long t0 = System.nanoTime();
+      addEdges = incremental(verts, us, vs, ws).edgeCount();
+      long t1 = System.nanoTime();
+      buildEdges = built(verts, us, vs, ws).edgeCount();
+      long t2 = System.nanoTime();
+      bestAdd = Math.min(bestAdd, t1 - t0);
+      bestBuild = Math.min(bestBuild, t2 - t1);
+    }
+
+    System.out.println(n + " vertices, " + m + " edges given, " +
+                       buildEdges + " distinct");
+    System.out.printf("addEdge() calls  %8.1f ms%n", bestAdd / 1e6);
+    System.out.printf("WUGraph.Builder  %8.1f ms%n", bestBuild / 1e6);
+    if (addEdges != buildEdges) {
+      System.out.println("Edge counts differ: " + addEdges + " vs " +
+                         buildEdges);
+      System.exit(1);
+    }
+
+    // The large list has few duplicates, so also check a small, dense one
+    // where most edges repeat, with self-edges and unknown endpoints too.
+    int denseN = 100;
+    int denseM = 20000;
+    Object[] denseUs = new Object[denseM];
+    Object[] denseVs = new Object[denseM];
+    int[] denseWs = new int[denseM];
+    for (int i = 0; i < denseM; i++) {
+      denseUs[i] = verts[random.nextInt(denseN)];
+      denseVs[i] = random.nextInt(50) == 0 ? denseUs[i] :
+                   random.nextInt(50) == 0 ? new Object() :
+                   verts[random.nextInt(denseN)];
+      denseWs[i] = random.nextInt(1000);
+    }
+    Object[] denseVerts = new Object[denseN];
+    System.arraycopy(verts, 0, denseVerts, 0, denseN);
+
+    boolean same = checkSame("large", verts, us, vs, ws);
+    same &= checkSame("dense", denseVerts, denseUs, denseVs, denseWs);
+    if (!same) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * checkSame() compares the Builder's graphs with sequential ones under
+   * both duplicate policies, prints the outcome, and returns true if both
+   * match.
+   */
+  private static boolean checkSame(String name, Object[] verts, Object[] us,
+                                   Object[] vs, int[] ws) {
+    String last = difference(incremental(verts, us, vs, ws),
+                             built(verts, us, vs, ws));
+    String min = difference(incrementalMin(verts, us, vs, ws),
+                            built(verts, us, vs, ws,
+                                  WUGraph.Builder.Duplicates.MIN_WEIGHT));
+    System.out.println(name + ", LAST_WINS:  " +
+                       (last == null ? "same graph" : last));
+    System.out.println(name + ", MIN_WEIGHT: " +
+                       (min == null ? "same graph" : min));
+    return last == null && min == null;
+  }
+}
@@ -744,6 +744,191 @@ public class WUGTest {
 
   }
 
+  /**
+   * batchTest() checks the batched getNeighbors() against the one-vertex
+   * getNeighbors(), with a batch too small at first, so that its arrays
+   * must grow, and then reused.  Returns the number of problems found.
+   */
+  private static int batchTest(Object[] vertArray) {
+    int problems = 0;
+    WUGraph g;
+
+    System.out.println("Running batched getNeighbors() test.");
+    System.out.println("Creating graph with a complete subgraph on vertices" +
+                       " 0-11 and isolated vertices 12-19.");
+    g = new WUGraph();
+    for (int i = 0; i < vertArray.length; i++) {
+      g.addVertex(vertArray[i]);
+    }
+    for (int i = 0; i < 12; i++) {
+      for (int j = i; j < 12; j++) {
+        g.addEdge(vertArray[i], vertArray[j], 100 * i + j);
+      }
+    }
+
+    Object missing = new Nothing();
+    Object[] rows = { vertArray[0], missing, vertArray[5], vertArray[5],
+                      vertArray[15], vertArray[11], vertArray[3] };
+    NeighborBatch batch = new NeighborBatch(2, 4);
+
+    System.out.println("Getting the neighbors of vertices 0, (not a vertex)," +
+                       " 5, 5, 15 and 11 into a batch for 2 rows.");
+    g.getNeighbors(rows, 6, batch);
+    problems += checkBatch(g, rows, 6, batch);
+
+    System.out.println("Reusing the batch for vertices 0 and (not a vertex).");
+    int[] offsets = batch.offsets;
+    Object[] neighborList = batch.neighborList;
+    g.getNeighbors(rows, 2, batch);
+    problems += checkBatch(g, rows, 2, batch);
+    if (batch.offsets != offsets || batch.neighborList != neighborList) {
+      System.out.println("getNeighbors() replaced arrays that were big" +
+                         " enough.");
+      problems++;
+    }
+
+    System.out.println();
+    return problems;
+  }
+
+  /**
+   * checkBatch() checks that batch holds the neighbors of rows[0..count-1],
+   * as the one-vertex getNeighbors() returns them, and an empty row for a
+   * vertex with none or for a non-vertex.
+   */
+  private static int checkBatch(WUGraph g, Object[] rows, int count,
+                                NeighborBatch batch) {
+    int problems = 0;
+    if (batch.rowCount != count || batch.offsets[0] != 0) {
+      System.out.println("getNeighbors() batch has rowCount " +
+                         batch.rowCount + " and offsets[0] " +
+                         batch.offsets[0] + "; should be " + count +
+                         " and 0.");
+      return 1;
+    }
+    for (int r = 0; r < count; r++) {
+      Neighbors neigh = g.getNeighbors(rows[r]);
+      int length = batch.offsets[r + 1] - batch.offsets[r];
+      int expected = neigh == null ? 0 : neigh.neighborList.length;
+      if (length != expected) {
+        System.out.println("Row " + r + " of the batch has " + length +
+                           " neighbors but should have " + expected + ".");
+        problems++;
+        continue;
+      }
+      for (int k = 0; k < length; k++) {
+        int i = batch.offsets[r] + k;
+        if (batch.neighborList[i] != neigh.neighborList[k] ||
+            batch.weightList[i] != neigh.weightList[k]) {
+          System.out.println("Neighbor " + k + " in row " + r +
+                             " of the batch is wrong.");
+          problems++;
+        }
+      }
+    }
+    return problems;
+  }
+
+  /**
+   * iteratorTest() checks that forEachNeighbor() and a NeighborCursor give
+   * each vertex's neighbors and weights in the same order as getNeighbors(),
+   * and nothing for a vertex of degree 0 or a non-vertex.  One cursor is
+   * reset() from vertex to vertex, sometimes in the middle of a row.
+   * Returns the number of problems found.
+   */
+  private static int iteratorTest(Object[] vertArray) {
+    int problems = 0;
+    WUGraph g;
+
+    System.out.println("Running forEachNeighbor() and NeighborCursor test.");
+    System.out.println("Creating graph with a complete subgraph on vertices" +
+                       " 0-11, less edges (0, 5) and (3, 3), and isolated" +
+                       " vertices 12-19.");
+    g = new WUGraph();
+    for (int i = 0; i < vertArray.length; i++) {
+      g.addVertex(vertArray[i]);
+    }
+    for (int i = 0; i < 12; i++) {
+      for (int j = i; j < 12; j++) {
+        g.addEdge(vertArray[i], vertArray[j], 100 * i + j);
+      }
+    }
+    g.removeEdge(vertArray[0], vertArray[5]);
+    g.removeEdge(vertArray[3], vertArray[3]);
+
+    Object[] rows = new Object[vertArray.length + 1];
+    System.arraycopy(vertArray, 0, rows, 0, vertArray.length);
+    rows[vertArray.length] = new Nothing();
+
+    final Object[] seen = new Object[vertArray.length];
+    final int[] seenWeights = new int[vertArray.length];
+    final int[] count = new int[1];
+    WUGraph.NeighborCursor cursor = g.newCursor();
+    for (int r = 0; r < rows.length; r++) {
+      Neighbors neigh = g.getNeighbors(rows[r]);
+      String name = r < vertArray.length ? "vertex " + r : "a non-vertex";
+
+      count[0] = 0;
+      g.forEachNeighbor(rows[r], (neighbor, weight) -> {
+        if (count[0] < seen.length) {
+          seen[count[0]] = neighbor;
+          seenWeights[count[0]] = weight;
+        }
+        count[0]++;
+      });
+      if (!sameNeighbors(neigh, seen, seenWeights, count[0])) {
+        System.out.println("forEachNeighbor() on " + name + " differs from" +
+                           " getNeighbors().");
+        problems++;
+      }
+
+      // Leave the cursor part way along another row before resetting it.
+      cursor.reset(rows[(r + 1) % vertArray.length]);
+      cursor.next();
+      if (cursor.reset(rows[r]) != (r < vertArray.length)) {
+        System.out.println("reset() on " + name + " returns the wrong" +
+                           " value.");
+        problems++;
+      }
+      count[0] = 0;
+      while (cursor.next()) {
+        if (count[0] < seen.length) {
+          seen[count[0]] = cursor.neighbor();
+          seenWeights[count[0]] = cursor.weight();
+        }
+        count[0]++;
+      }
+      if (!sameNeighbors(neigh, seen, seenWeights, count[0])) {
+        System.out.println("NeighborCursor on " + name + " differs from" +
+                           " getNeighbors().");
+        problems++;
+      }
+    }
+
+    System.out.println();
+    return problems;
+  }
+
+  /**
+   * sameNeighbors() returns true if the first "count" entries of seen and
+   * seenWeights are the neighbors and weights in neigh, in order.  A null
+   * neigh means no neighbors.
+   */
+  private static boolean sameNeighbors(Neighbors neigh, Object[] seen,
+                                       int[] seenWeights, int count) {
+    int expected = neigh == null ? 0 : neigh.neighborList.length;
+    if (count != expected) {
+      return false;
+    }
+    for (int k = 0; k < count; k++) {
+      if (seen[k] != neigh.neighborList[k] ||
+          seenWeights[k] != neigh.weightList[k]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public static final int VERTICES = 20;
 
   public static void main(String[] args) {
@@ -759,6 +944,17 @@ public class WUGTest {
       score = 0;
     }
 
+    if (iteratorTest(vertArray) == 0) {
+      System.out.println("forEachNeighbor() and NeighborCursor test passed.");
+    } else {
+      System.out.println("forEachNeighbor() and NeighborCursor test FAILED.");
+    }
+    if (batchTest(vertArray) == 0) {
+      System.out.println("Batched getNeighbors() test passed.");
+    } else {
+      System.out.println("Batched getNeighbors() test FAILED.");
+    }
+
     System.out.println("Your WUGraph test score is " + (0.5 * (double) score) +
                        " out of 7.0.");
     System.out.println("  (Be sure also to run KruskalTest.java.)");
@@ -0,0 +1,151 @@
+/* CsrGraph.java */
+
+package graph;
+
+import java.util.HashMap;
+
+/**
+ * The CsrGraph class is an immutable compressed-sparse-row snapshot of a
+ * WUGraph.  It is meant for graphs that are built once and then scanned many
+ * times (MST, traversals, neighbor scans).  Create one with WUGraph.freeze().
+ *
+ * Vertices are numbered densely 0..n-1.  The neighbors of vertex i occupy the
+ * slots firstSlot(i) .. endSlot(i)-1; slot s holds the neighbor id target(s)
+ * and the edge weight weight(s).  A regular edge (u,v) appears twice, once in
+ * u's row and once in v's row.  A self-edge (u,u) appears once, in u's row,
+ * so that degree() agrees with WUGraph.degree().
+ *
+ * Scanning a row is a sequential walk over int arrays and allocates nothing.
+ */
+public class CsrGraph {
+
+  /** Vertex objects, indexed by dense id. */
+  private final Object[] vertices;
+
+  /** Row i occupies targets[offsets[i] .. offsets[i+1]-1]. */
+  private final int[] offsets;
+
+  /** Neighbor id of each slot. */
+  private final int[] targets;
+
+  /** Edge weight of each slot. */
+  private final int[] weights;
+
+  /** Number of undirected edges (self-edges count once). */
+  private final int edgeCount;
+
+  /** Map from vertex object to dense id, built on first call to id(). */
+  private volatile HashMap<Object, Integer> idTable;
+
+  /**
+   * Construct a snapshot from already-filled arrays.  The arrays are owned by
+   * the new CsrGraph and must not be modified afterward.
+   */
+  CsrGraph(Object[] vertices, int[] offsets, int[] targets, int[] weights,
+           int edgeCount) {
+    this.vertices = vertices;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+    this.edgeCount = edgeCount;
+  }
+
+  /**
+   * Returns the number of vertices.
+   */
+  public int vertexCount() {
+    return vertices.length;
+  }
+
+  /**
+   * Returns the number of edges (self-edges count once).
+   */
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * vertex() returns the vertex object with dense id "id".
+   *
+   * Running time: O(1).
+   */
+  public Object vertex(int id) {
+    return vertices[id];
+  }
+
+  /**
+   * getVertices() returns all vertex objects as an array, indexed by id.
+   *
+   * Running time: O(|V|).
+   */
+  public Object[] getVertices() {
+    return vertices.clone();
+  }
+
+  /**
+   * id() returns the dense id of a vertex object, or -1 if it is not a vertex
+   * of this snapshot.  The first call builds a hash table in O(|V|) time.
+   *
+   * Running time: O(1) after the first call.
+   */
+  public int id(Object vertex) {
+    HashMap<Object, Integer> table = idTable;
+    if (table == null) {
+      table = new HashMap<Object, Integer>(vertices.length * 2);
+      for (int i = 0; i < vertices.length; i++) {
+        table.put(vertices[i], Integer.valueOf(i));
+      }
+      idTable = table;
+    }
+    Integer id = table.get(vertex);
+    if (id == null) {
+      return -1;
+    }
+    return id.intValue();
+  }
+
+  /**
+   * degree() returns the degree of vertex "id"; a self-edge counts as 1.
+   *
+   * Running time: O(1).
+   */
+  public int degree(int id) {
+    return offsets[id + 1] - offsets[id];
+  }
+
+  /**
+   * firstSlot() returns the first slot of vertex "id"'s row.
+   *
+   * Running time: O(1).
+   */
+  public int firstSlot(int id) {
+    return offsets[id];
+  }
+
+  /**
+   * endSlot() returns one past the last slot of vertex "id"'s row.
+   *
+   * Running time: O(1).
+   */
+  public int endSlot(int id) {
+    return offsets[id + 1];
+  }
+
+  /**
+   * target() returns the neighbor id stored in a slot.
+   *
+   * Running time: O(1).
+   */
+  public int target(int slot) {
+    return targets[slot];
+  }
+
+  /**
+   * weight() returns the edge weight stored in a slot.
+   *
+   * Running time: O(1).
+   */
+  public int weight(int slot) {
+    return weights[slot];
+  }
+}
@@ -0,0 +1,576 @@
+/* IntWUGraph.java */
+
+package graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The IntWUGraph class represents a weighted, undirected graph whose vertices
+ * are int ids.  Self-edges are permitted.  It offers the same operations as
+ * WUGraph, but no vertex is ever boxed and no operation allocates an object
+ * except when an array has to grow.
+ *
+ * This implementation uses:
+ *  - a LongIntTable mapping each vertex id to an internal vertex index
+ *  - parallel int arrays for vertex records, linked into a doubly-linked list
+ *    of all vertices for getVertices()
+ *  - parallel int arrays for half-edges.  Edge e owns half-edges 2e and
+ *    2e+1, so a half-edge's partner is always h ^ 1.  Each vertex's incident
+ *    half-edges form a doubly-linked adjacency list threaded through
+ *    halfNext[] and halfPrev[].
+ *  - a LongIntTable mapping each unordered pair of internal vertex indices,
+ *    packed into a long, to its edge number
+ *
+ * A regular edge (u,v) puts half-edge 2e in u's list and 2e+1 in v's list.
+ * A self-edge (u,u) puts only half-edge 2e in u's list.  In both cases
+ * halfTarget[h ^ 1] is the vertex whose list h belongs to.
+ */
+public class IntWUGraph {
+
+  private static final int NONE = -1;
+
+  /** Number of vertices. */
+  private int vertexCount;
+
+  /** Number of undirected edges (self-edges count once). */
+  private int edgeCount;
+
+  /** Map from vertex id to internal vertex index. */
+  private LongIntTable vertexTable;
+
+  /** Vertex records, indexed by internal vertex index. */
+  private int[] vertexId;       // application vertex id
+  private int[] vertexDegree;   // number of incident edges; self-edge adds 1
+  private int[] vertexAdj;      // first half-edge of adjacency list, or NONE
+  private int[] vertexPrev;     // previous in global list, or NONE
+  private int[] vertexNext;     // next in global list (or free list), or NONE
+
+  /** Head of global vertex list. */
+  private int vertexHead;
+
+  /** Head of the list of freed vertex indices, threaded through vertexNext. */
+  private int vertexFree;
+
+  /** Number of vertex indices ever handed out. */
+  private int vertexTop;
+
+  /** Map from packed unordered pair of vertex indices to edge number. */
+  private LongIntTable edgeTable;
+
+  /** Half-edge records, indexed by half-edge number. */
+  private int[] halfTarget;     // internal index of the neighbor
+  private int[] halfNext;       // next in adjacency list (or free list)
+  private int[] halfPrev;       // previous in adjacency list, or NONE
+
+  /** Edge weights, indexed by edge number. */
+  private int[] edgeWeight;
+
+  /** Head of the list of freed edge numbers, threaded through halfNext. */
+  private int edgeFree;
+
+  /** Number of edge numbers ever handed out. */
+  private int edgeTop;
+
+  /**
+   * Construct an empty graph.
+   */
+  public IntWUGraph() {
+    this(0, 0);
+  }
+
+  /**
+   * Construct an empty graph presized to hold the given numbers of vertices
+   * and edges without growing any table or array.
+   */
+  public IntWUGraph(int expectedVertices, int expectedEdges) {
+    int vCap = Math.max(expectedVertices, 4);
+    int eCap = Math.max(expectedEdges, 4);
+
+    vertexTable = new LongIntTable(expectedVertices);
+    vertexId = new int[vCap];
+    vertexDegree = new int[vCap];
+    vertexAdj = new int[vCap];
+    vertexPrev = new int[vCap];
+    vertexNext = new int[vCap];
+    vertexHead = NONE;
+    vertexFree = NONE;
+    vertexTop = 0;
+
+    edgeTable = new LongIntTable(expectedEdges);
+    halfTarget = new int[2 * eCap];
+    halfNext = new int[2 * eCap];
+    halfPrev = new int[2 * eCap];
+    edgeWeight = new int[eCap];
+    edgeFree = NONE;
+    edgeTop = 0;
+
+    vertexCount = 0;
+    edgeCount = 0;
+  }
+
+  /**
+   * Returns the number of vertices.
+   */
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * Returns the number of edges (self-edges count once).
+   */
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * getVertices() returns all vertex ids as an array.
+   *
+   * Running time: O(|V|).
+   */
+  public int[] getVertices() {
+    int[] verts = new int[vertexCount];
+    int i = 0;
+    for (int cur = vertexHead; cur != NONE; cur = vertexNext[cur]) {
+      verts[i++] = vertexId[cur];
+    }
+    return verts;
+  }
+
+  /**
+   * addVertex() adds a vertex (with no incident edges).  If already present,
+   * do nothing.
+   *
+   * Running time: O(1) amortized.
+   */
+  public void addVertex(int vertex) {
+    if (vertexTable.get(vertex) >= 0) {
+      return;
+    }
+    int v = allocVertex();
+    vertexId[v] = vertex;
+    vertexDegree[v] = 0;
+    vertexAdj[v] = NONE;
+
+    // Insert at head of global vertex list.
+    vertexPrev[v] = NONE;
+    vertexNext[v] = vertexHead;
+    if (vertexHead != NONE) {
+      vertexPrev[vertexHead] = v;
+    }
+    vertexHead = v;
+
+    vertexTable.put(vertex, v);
+    vertexCount++;
+  }
+
+  /**
+   * removeVertex() deletes a vertex and all incident edges.
+   *
+   * Running time: O(d) where d is the degree.
+   */
+  public void removeVertex(int vertex) {
+    int v = vertexTable.remove(vertex);
+    if (v < 0) {
+      return;
+    }
+
+    // Remove all incident edges.  v's own list is discarded wholesale, so
+    // only the partner half-edges need unlinking.
+    int h = vertexAdj[v];
+    while (h != NONE) {
+      int next = halfNext[h];
+      int w = halfTarget[h];
+      if (w != v) {
+        unlinkHalf(w, h ^ 1);
+        vertexDegree[w]--;
+      }
+      edgeTable.remove(pairKey(v, w));
+      freeEdge(h >> 1);
+      edgeCount--;
+      h = next;
+    }
+
+    // Remove v itself from global vertex list.
+    if (vertexPrev[v] != NONE) {
+      vertexNext[vertexPrev[v]] = vertexNext[v];
+    } else {
+      vertexHead = vertexNext[v];
+    }
+    if (vertexNext[v] != NONE) {
+      vertexPrev[vertexNext[v]] = vertexPrev[v];
+    }
+
+    vertexNext[v] = vertexFree;
+    vertexFree = v;
+    vertexCount--;
+  }
+
+  /**
+   * isVertex() returns true if vertex is in the graph.
+   *
+   * Running time: O(1).
+   */
+  public boolean isVertex(int vertex) {
+    return vertexTable.get(vertex) >= 0;
+  }
+
+  /**
+   * degree() returns degree of vertex, self-edge counts as 1.
+   * Returns 0 if not a vertex.
+   *
+   * Running time: O(1).
+   */
+  public int degree(int vertex) {
+    int v = vertexTable.get(vertex);
+    if (v < 0) {
+      return 0;
+    }
+    return vertexDegree[v];
+  }
+
+  /**
+   * getNeighbors() returns the neighbors of a vertex as an array of pairs:
+   * entry 2i is the id of the i-th neighbor and entry 2i+1 is the weight of
+   * the edge to it.  Returns null if the vertex does not exist or has
+   * degree 0.
+   *
+   * Running time: O(d).
+   */
+  public int[] getNeighbors(int vertex) {
+    int v = vertexTable.get(vertex);
+    if (v < 0 || vertexDegree[v] == 0) {
+      return null;
+    }
+
+    int[] pairs = new int[2 * vertexDegree[v]];
+    int i = 0;
+    for (int h = vertexAdj[v]; h != NONE; h = halfNext[h]) {
+      pairs[i++] = vertexId[halfTarget[h]];
+      pairs[i++] = edgeWeight[h >> 1];
+    }
+    return pairs;
+  }
+
+  /**
+   * addEdge() adds or updates an edge (u,v) with given weight.
+   * Self-edges (u,u) are allowed.
+   *
+   * Running time: O(1) amortized.
+   */
+  public void addEdge(int u, int v, int weight) {
+    int iu = vertexTable.get(u);
+    int iv = vertexTable.get(v);
+    if (iu < 0 || iv < 0) {
+      return;
+    }
+
+    long key = pairKey(iu, iv);
+    int e = edgeTable.get(key);
+    if (e >= 0) {
+      // Edge already exists - both halves share one weight.
+      edgeWeight[e] = weight;
+      return;
+    }
+
+    e = allocEdge();
+    edgeWeight[e] = weight;
+    halfTarget[2 * e] = iv;
+    halfTarget[2 * e + 1] = iu;
+
+    linkHalf(iu, 2 * e);
+    vertexDegree[iu]++;
+    if (iu != iv) {
+      linkHalf(iv, 2 * e + 1);
+      vertexDegree[iv]++;
+    }
+
+    edgeTable.put(key, e);
+    edgeCount++;
+  }
+
+  /**
+   * removeEdge() removes edge (u,v) if it exists.
+   *
+   * Running time: O(1).
+   */
+  public void removeEdge(int u, int v) {
+    int iu = vertexTable.get(u);
+    int iv = vertexTable.get(v);
+    if (iu < 0 || iv < 0) {
+      return;
+    }
+
+    int e = edgeTable.remove(pairKey(iu, iv));
+    if (e < 0) {
+      return;
+    }
+
+    // Half-edge h belongs to the list of vertex halfTarget[h ^ 1].
+    int owner = halfTarget[2 * e + 1];
+    unlinkHalf(owner, 2 * e);
+    vertexDegree[owner]--;
+    if (iu != iv) {
+      int other = halfTarget[2 * e];
+      unlinkHalf(other, 2 * e + 1);
+      vertexDegree[other]--;
+    }
+
+    freeEdge(e);
+    edgeCount--;
+  }
+
+  /**
+   * isEdge() returns true if (u,v) is an edge.
+   * Returns false if either is not a vertex or edge does not exist.
+   *
+   * Running time: O(1).
+   */
+  public boolean isEdge(int u, int v) {
+    int iu = vertexTable.get(u);
+    int iv = vertexTable.get(v);
+    if (iu < 0 || iv < 0) {
+      return false;
+    }
+    return edgeTable.get(pairKey(iu, iv)) >= 0;
+  }
+
+  /**
+   * weight() returns weight of (u,v) or 0 if no such edge.
+   *
+   * Running time: O(1).
+   */
+  public int weight(int u, int v) {
+    int iu = vertexTable.get(u);
+    int iv = vertexTable.get(v);
+    if (iu < 0 || iv < 0) {
+      return 0;
+    }
+    int e = edgeTable.get(pairKey(iu, iv));
+    if (e < 0) {
+      return 0;
+    }
+    return edgeWeight[e];
+  }
+
+  /**
+   * pairKey() packs an unordered pair of internal vertex indices into a long,
+   * smaller index in the high half, so (a,b) and (b,a) give the same key.
+   */
+  private static long pairKey(int a, int b) {
+    if (a > b) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    return ((long) a << 32) | b;
+  }
+
+  /**
+   * Helper to insert half-edge h at the head of vertex v's adjacency list.
+   */
+  private void linkHalf(int v, int h) {
+    int head = vertexAdj[v];
+    halfPrev[h] = NONE;
+    halfNext[h] = head;
+    if (head != NONE) {
+      halfPrev[head] = h;
+    }
+    vertexAdj[v] = h;
+  }
+
+  /**
+   * Helper to unlink half-edge h from vertex v's adjacency list.
+   * Does not touch degree, edgeCount, or edgeTable.
+   */
+  private void unlinkHalf(int v, int h) {
+    int prev = halfPrev[h];
+    int next = halfNext[h];
+    if (prev != NONE) {
+      halfNext[prev] = next;
+    } else {
+      vertexAdj[v] = next;
+    }
+    if (next != NONE) {
+      halfPrev[next] = prev;
+    }
+  }
+
+  /**
+   * allocVertex() returns an unused vertex index, reusing freed ones first
+   * and growing the vertex arrays when they are full.
+   */
+  private int allocVertex() {
+    if (vertexFree != NONE) {
+      int v = vertexFree;
+      vertexFree = vertexNext[v];
+      return v;
+    }
+    if (vertexTop == vertexId.length) {
+      int cap = 2 * vertexId.length;
+      vertexId = Arrays.copyOf(vertexId, cap);
+      vertexDegree = Arrays.copyOf(vertexDegree, cap);
+      vertexAdj = Arrays.copyOf(vertexAdj, cap);
+      vertexPrev = Arrays.copyOf(vertexPrev, cap);
+      vertexNext = Arrays.copyOf(vertexNext, cap);
+    }
+    return vertexTop++;
+  }
+
+  /**
+   * allocEdge() returns an unused edge number, reusing freed ones first and
+   * growing the edge arrays when they are full.
+   */
+  private int allocEdge() {
+    if (edgeFree != NONE) {
+      int e = edgeFree;
+      edgeFree = halfNext[2 * e];
+      return e;
+    }
+    if (edgeTop == edgeWeight.length) {
+      int cap = 2 * edgeWeight.length;
+      edgeWeight = Arrays.copyOf(edgeWeight, cap);
+      halfTarget = Arrays.copyOf(halfTarget, 2 * cap);
+      halfNext = Arrays.copyOf(halfNext, 2 * cap);
+      halfPrev = Arrays.copyOf(halfPrev, 2 * cap);
+    }
+    return edgeTop++;
+  }
+
+  /**
+   * freeEdge() returns edge number e to the free list.
+   */
+  private void freeEdge(int e) {
+    halfNext[2 * e] = edgeFree;
+    edgeFree = e;
+  }
+
+  /**
+   * main() is test code.  Random vertex and edge insertions and removals
+   * over a small id range are applied both to an IntWUGraph and to a map of
+   * maps, and the two are compared every few operations.  Since vertices
+   * and edges keep being removed and re-added, freed indices must be
+   * reused:  no more vertex or edge slots may ever be handed out than the
+   * most vertices or edges the graph held at once.
+   */
+  public static void main(String[] args) {
+    int Ids = 64;
+    int Operations = 20000;
+
+    Random random = new Random(17);
+    IntWUGraph g = new IntWUGraph();
+    Map<Integer, Map<Integer, Integer>> model = new HashMap<>();
+    int modelEdges = 0;
+    int peakVertices = 0;
+    int peakEdges = 0;
+    int errors = 0;
+
+    for (int op = 0; op < Operations; op++) {
+      int u = random.nextInt(Ids);
+      int v = random.nextInt(Ids);
+      int r = random.nextInt(10);
+      if (r < 2) {
+        g.addVertex(u);
+        model.putIfAbsent(u, new HashMap<>());
+      } else if (r < 3) {
+        g.removeVertex(u);
+        Map<Integer, Integer> gone = model.remove(u);
+        if (gone != null) {
+          for (int w : gone.keySet()) {
+            if (w != u) {
+              model.get(w).remove(u);
+            }
+          }
+          modelEdges -= gone.size();
+        }
+      } else if (r < 7) {
+        int weight = random.nextInt(100);
+        g.addEdge(u, v, weight);
+        if (model.containsKey(u) && model.containsKey(v)) {
+          if (model.get(u).put(v, weight) == null) {
+            modelEdges++;
+          }
+          model.get(v).put(u, weight);
+        }
+      } else {
+        g.removeEdge(u, v);
+        if (model.containsKey(u) && model.get(u).remove(v) != null) {
+          model.get(v).remove(u);
+          modelEdges--;
+        }
+      }
+      peakVertices = Math.max(peakVertices, model.size());
+      peakEdges = Math.max(peakEdges, modelEdges);
+
+      if (op % 100 == 99 && !sameAs(g, model, modelEdges, Ids)) {
+        errors++;
+      }
+    }
+
+    if (g.vertexTop > peakVertices || g.edgeTop > peakEdges) {
+      System.out.println("Freed slots not reused: " + g.vertexTop +
+                         " vertex slots for at most " + peakVertices +
+                         " vertices, " + g.edgeTop + " edge slots for at" +
+                         " most " + peakEdges + " edges.");
+      errors++;
+    }
+    System.out.println(Operations + " operations, " + errors + " errors");
+    if (errors > 0) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * sameAs() returns true if g holds exactly the vertices and weighted
+   * edges of model, in which each edge appears under both endpoints.
+   */
+  private static boolean sameAs(IntWUGraph g,
+                                Map<Integer, Map<Integer, Integer>> model,
+                                int modelEdges, int ids) {
+    if (g.vertexCount() != model.size() || g.edgeCount() != modelEdges) {
+      return false;
+    }
+    int[] verts = g.getVertices();
+    if (verts.length != model.size()) {
+      return false;
+    }
+    for (int vertex : verts) {
+      if (!model.containsKey(vertex)) {
+        return false;
+      }
+    }
+    for (int u = 0; u < ids; u++) {
+      Map<Integer, Integer> edges = model.get(u);
+      if (g.isVertex(u) != (edges != null)) {
+        return false;
+      }
+      if (edges == null) {
+        continue;
+      }
+      if (g.degree(u) != edges.size()) {
+        return false;
+      }
+      int[] pairs = g.getNeighbors(u);
+      int found = pairs == null ? 0 : pairs.length / 2;
+      if (found != edges.size()) {
+        return false;
+      }
+      for (int i = 0; i < 2 * found; i += 2) {
+        Integer weight = edges.get(pairs[i]);
+        if (weight == null || weight != pairs[i + 1]) {
+          return false;
+        }
+      }
+      for (int v = 0; v < ids; v++) {
+        Integer weight = edges.get(v);
+        if (g.isEdge(u, v) != (weight != null) ||
+            g.weight(u, v) != (weight == null ? 0 : weight)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
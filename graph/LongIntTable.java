@@ -0,0 +1,192 @@
+/* LongIntTable.java */
+
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * The LongIntTable class is a hash table from long keys to non-negative int
+ * values.  It uses open addressing with linear probing over two parallel
+ * arrays, so entries are not objects and lookups allocate nothing.
+ *
+ * Deletion uses backward shifting rather than tombstones, so a probe
+ * sequence never has to step over deleted slots.
+ *
+ * Values must be non-negative; get() and remove() return -1 to mean "no such
+ * key".
+ */
+class LongIntTable {
+
+  /** Marks an empty slot in keys[].  The key itself is stored out of line. */
+  private static final long EMPTY = Long.MIN_VALUE;
+
+  private static final int MIN_CAPACITY = 8;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private long[] keys;
+  private int[] values;
+
+  /** Number of keys stored in keys[] (not counting the EMPTY key). */
+  private int size;
+
+  /** keys.length - 1; the capacity is always a power of two. */
+  private int mask;
+
+  /** 64 - log2(keys.length), for taking the top bits of a hash. */
+  private int shift;
+
+  /** Value of the key EMPTY, or -1 if that key is absent. */
+  private int emptyKeyValue;
+
+  /**
+   * Construct an empty table that can hold "expected" keys without growing.
+   */
+  LongIntTable(int expected) {
+    allocate(capacityFor(expected));
+    emptyKeyValue = -1;
+  }
+
+  /**
+   * get() returns the value for "key", or -1 if the key is absent.
+   *
+   * Running time: O(1) expected.
+   */
+  int get(long key) {
+    if (key == EMPTY) {
+      return emptyKeyValue;
+    }
+    long[] k = keys;
+    int i = slot(key);
+    while (true) {
+      long cur = k[i];
+      if (cur == key) {
+        return values[i];
+      }
+      if (cur == EMPTY) {
+        return -1;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  /**
+   * put() maps "key" to "value", replacing any previous value, and returns
+   * the previous value or -1.
+   *
+   * Running time: O(1) amortized expected.
+   */
+  int put(long key, int value) {
+    if (key == EMPTY) {
+      int old = emptyKeyValue;
+      emptyKeyValue = value;
+      return old;
+    }
+    int i = slot(key);
+    while (true) {
+      long cur = keys[i];
+      if (cur == key) {
+        int old = values[i];
+        values[i] = value;
+        return old;
+      }
+      if (cur == EMPTY) {
+        break;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    size++;
+    if (2 * size > keys.length && keys.length < MAX_CAPACITY) {
+      rehash(keys.length * 2);
+    }
+    return -1;
+  }
+
+  /**
+   * remove() deletes "key" and returns its value, or -1 if it was absent.
+   *
+   * Running time: O(1) expected.
+   */
+  int remove(long key) {
+    if (key == EMPTY) {
+      int old = emptyKeyValue;
+      emptyKeyValue = -1;
+      return old;
+    }
+    int i = slot(key);
+    while (true) {
+      long cur = keys[i];
+      if (cur == key) {
+        break;
+      }
+      if (cur == EMPTY) {
+        return -1;
+      }
+      i = (i + 1) & mask;
+    }
+    int old = values[i];
+
+    // Shift later entries of the probe run back into the hole, so that every
+    // remaining key is still reachable from its home slot.
+    int hole = i;
+    int j = (i + 1) & mask;
+    while (keys[j] != EMPTY) {
+      int home = slot(keys[j]);
+      // Move keys[j] if its home slot is not cyclically in (hole, j].
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        keys[hole] = keys[j];
+        values[hole] = values[j];
+        hole = j;
+      }
+      j = (j + 1) & mask;
+    }
+    keys[hole] = EMPTY;
+    size--;
+    return old;
+  }
+
+  /**
+   * slot() returns the home slot of a key, using Fibonacci hashing: the
+   * top bits of key * 2^64/phi.  Every key bit affects those top bits, so
+   * packed pairs of small ints spread evenly.
+   */
+  private int slot(long key) {
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+  }
+
+  private static int capacityFor(int expected) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < 2L * expected && capacity < MAX_CAPACITY) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+    mask = capacity - 1;
+    shift = Long.numberOfLeadingZeros(capacity) + 1;
+    size = 0;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      long key = oldKeys[i];
+      if (key != EMPTY) {
+        int j = slot(key);
+        while (keys[j] != EMPTY) {
+          j = (j + 1) & mask;
+        }
+        keys[j] = key;
+        values[j] = oldValues[i];
+        size++;
+      }
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/* NeighborBatch.java */
+
+package graph;
+
+/**
+ * The NeighborBatch class is a reusable buffer that WUGraph.getNeighbors()
+ * fills with the neighbors of many vertices at once, in compressed-sparse-row
+ * form.  Row i (the neighbors of the i-th requested vertex) occupies entries
+ * offsets[i] .. offsets[i+1]-1 of neighborList and weightList.
+ *
+ * The arrays are grown as needed and never shrunk, so a frontier loop that
+ * reuses one NeighborBatch stops allocating once the buffer is big enough.
+ * Arrays may be longer than the data they hold; only the first rowCount+1
+ * offsets and the first offsets[rowCount] neighbors are meaningful.
+ *
+ * Like Neighbors, this class is a collection of data, so all fields are
+ * public.
+ */
+public class NeighborBatch {
+  public int rowCount;
+  public int[] offsets;
+  public Object[] neighborList;
+  public int[] weightList;
+
+  /**
+   * Construct an empty batch.
+   */
+  public NeighborBatch() {
+    this(16, 64);
+  }
+
+  /**
+   * Construct an empty batch with room for the given numbers of rows and
+   * neighbors before any array has to grow.
+   */
+  public NeighborBatch(int expectedRows, int expectedNeighbors) {
+    rowCount = 0;
+    offsets = new int[expectedRows + 1];
+    neighborList = new Object[expectedNeighbors];
+    weightList = new int[expectedNeighbors];
+  }
+}
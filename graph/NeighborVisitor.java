@@ -0,0 +1,20 @@
+/* NeighborVisitor.java */
+
+package graph;
+
+/**
+ * A NeighborVisitor receives the neighbors of a vertex one at a time from
+ * WUGraph.forEachNeighbor(), which walks the adjacency in place instead of
+ * copying it into a Neighbors object.
+ */
+public interface NeighborVisitor {
+
+  /**
+   * visit() is called once per incident edge.
+   *
+   * @param neighbor the vertex object at the other end of the edge; for a
+   *        self-edge, the vertex itself.
+   * @param weight the weight of the edge.
+   */
+  void visit(Object neighbor, int weight);
+}
@@ -0,0 +1,200 @@
+/* OffHeapLongIntTable.java */
+
+package graph;
+
+/**
+ * The OffHeapLongIntTable class is the off-heap twin of LongIntTable: a hash
+ * table from long keys to non-negative int values, using open addressing with
+ * linear probing and backward-shift deletion.  Keys and values live in
+ * OffHeapSegments, so the table adds only a few objects to the heap however
+ * many keys it holds.
+ *
+ * Values must be non-negative; get() and remove() return -1 to mean "no such
+ * key".  close() frees the table's memory (see OffHeapSegment.close()); the
+ * table must not be used afterward.
+ */
+class OffHeapLongIntTable {
+
+  /** Marks an empty slot.  The key itself is stored out of line. */
+  private static final long EMPTY = Long.MIN_VALUE;
+
+  private static final long MIN_CAPACITY = 8;
+
+  private OffHeapSegment keys;      // 8 bytes per slot
+  private OffHeapSegment values;    // 4 bytes per slot
+
+  /** Number of slots; always a power of two. */
+  private long capacity;
+  private long mask;
+
+  /** 64 - log2(capacity), for taking the top bits of a hash. */
+  private int shift;
+
+  /** Number of keys stored in slots (not counting the EMPTY key). */
+  private long size;
+
+  /** Value of the key EMPTY, or -1 if that key is absent. */
+  private int emptyKeyValue;
+
+  /**
+   * Construct an empty table that can hold "expected" keys without growing.
+   */
+  OffHeapLongIntTable(long expected) {
+    allocate(capacityFor(expected));
+    emptyKeyValue = -1;
+  }
+
+  /**
+   * get() returns the value for "key", or -1 if the key is absent.
+   *
+   * Running time: O(1) expected.
+   */
+  int get(long key) {
+    if (key == EMPTY) {
+      return emptyKeyValue;
+    }
+    long i = slot(key);
+    while (true) {
+      long cur = keys.getLong(8 * i);
+      if (cur == key) {
+        return values.getInt(4 * i);
+      }
+      if (cur == EMPTY) {
+        return -1;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  /**
+   * put() maps "key" to "value", replacing any previous value, and returns
+   * the previous value or -1.
+   *
+   * Running time: O(1) amortized expected.
+   */
+  int put(long key, int value) {
+    if (key == EMPTY) {
+      int old = emptyKeyValue;
+      emptyKeyValue = value;
+      return old;
+    }
+    long i = slot(key);
+    while (true) {
+      long cur = keys.getLong(8 * i);
+      if (cur == key) {
+        int old = values.getInt(4 * i);
+        values.putInt(4 * i, value);
+        return old;
+      }
+      if (cur == EMPTY) {
+        break;
+      }
+      i = (i + 1) & mask;
+    }
+    keys.putLong(8 * i, key);
+    values.putInt(4 * i, value);
+    size++;
+    if (2 * size > capacity) {
+      rehash(2 * capacity);
+    }
+    return -1;
+  }
+
+  /**
+   * remove() deletes "key" and returns its value, or -1 if it was absent.
+   *
+   * Running time: O(1) expected.
+   */
+  int remove(long key) {
+    if (key == EMPTY) {
+      int old = emptyKeyValue;
+      emptyKeyValue = -1;
+      return old;
+    }
+    long i = slot(key);
+    while (true) {
+      long cur = keys.getLong(8 * i);
+      if (cur == key) {
+        break;
+      }
+      if (cur == EMPTY) {
+        return -1;
+      }
+      i = (i + 1) & mask;
+    }
+    int old = values.getInt(4 * i);
+
+    // Shift later entries of the probe run back into the hole, so that every
+    // remaining key is still reachable from its home slot.
+    long hole = i;
+    long j = (i + 1) & mask;
+    long cur;
+    while ((cur = keys.getLong(8 * j)) != EMPTY) {
+      long home = slot(cur);
+      // Move the key at j if its home slot is not cyclically in (hole, j].
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        keys.putLong(8 * hole, cur);
+        values.putInt(4 * hole, values.getInt(4 * j));
+        hole = j;
+      }
+      j = (j + 1) & mask;
+    }
+    keys.putLong(8 * hole, EMPTY);
+    size--;
+    return old;
+  }
+
+  /**
+   * close() frees the memory of the table's segments.
+   */
+  void close() {
+    keys.close();
+    values.close();
+  }
+
+  private long slot(long key) {
+    return (key * 0x9E3779B97F4A7C15L) >>> shift;
+  }
+
+  private static long capacityFor(long expected) {
+    long capacity = MIN_CAPACITY;
+    while (capacity < 2 * expected) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private void allocate(long newCapacity) {
+    capacity = newCapacity;
+    mask = newCapacity - 1;
+    shift = Long.numberOfLeadingZeros(newCapacity) + 1;
+    keys = new OffHeapSegment(8 * newCapacity);
+    values = new OffHeapSegment(4 * newCapacity);
+    for (long i = 0; i < newCapacity; i++) {
+      keys.putLong(8 * i, EMPTY);
+    }
+    size = 0;
+  }
+
+  private void rehash(long newCapacity) {
+    OffHeapSegment oldKeys = keys;
+    OffHeapSegment oldValues = values;
+    long oldCapacity = capacity;
+    allocate(newCapacity);
+    for (long i = 0; i < oldCapacity; i++) {
+      long key = oldKeys.getLong(8 * i);
+      if (key != EMPTY) {
+        long j = slot(key);
+        while (keys.getLong(8 * j) != EMPTY) {
+          j = (j + 1) & mask;
+        }
+        keys.putLong(8 * j, key);
+        values.putInt(4 * j, oldValues.getInt(4 * i));
+        size++;
+      }
+    }
+    // Free the old slots now, not whenever the collector gets to them.
+    oldKeys.close();
+    oldValues.close();
+  }
+}
@@ -0,0 +1,155 @@
+/* OffHeapSegment.java */
+
+package graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * The OffHeapSegment class is a growable block of memory outside the Java
+ * heap, addressed by long byte offsets.  It is built from several buffers
+ * ("chunks") so that it can exceed the 2GB limit of a single buffer, and so
+ * that growing it never copies existing data.
+ *
+ * The chunks are memory mappings of a temporary file of the segment's own,
+ * which is deleted as soon as it is opened.  Unlike direct ByteBuffers,
+ * mappings do not count against -XX:MaxDirectMemorySize (which defaults to
+ * the heap size), so a graph far bigger than the heap needs no JVM flags;
+ * the file lives in java.io.tmpdir, which must have room for it.
+ *
+ * Ints and longs must be stored at offsets that are multiples of their size;
+ * chunks are a power of two in size, so an aligned value never straddles two
+ * chunks.  Fresh memory reads as zero.
+ */
+class OffHeapSegment {
+
+  /** Size of every chunk except a lone, still-growing first chunk. */
+  private static final int CHUNK_SHIFT = 24;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private static final int MIN_FIRST_CHUNK = 4096;
+
+  private ByteBuffer[] chunks;
+  private int chunkCount;
+  private RandomAccessFile file;
+
+  /**
+   * Construct a segment of at least "bytes" bytes.
+   *
+   * @throws UncheckedIOException if the temporary file cannot be created.
+   */
+  OffHeapSegment(long bytes) {
+    chunks = new ByteBuffer[4];
+    chunkCount = 0;
+    try {
+      File path = File.createTempFile("OffHeapSegment", ".bin");
+      file = new RandomAccessFile(path, "rw");
+      if (!path.delete()) {
+        path.deleteOnExit();        // e.g. Windows, where open files stay
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    ensureCapacity(bytes);
+  }
+
+  /**
+   * capacity() returns the number of usable bytes.
+   */
+  long capacity() {
+    if (chunkCount == 1) {
+      return chunks[0].capacity();
+    }
+    return (long) chunkCount << CHUNK_SHIFT;
+  }
+
+  /**
+   * ensureCapacity() grows the segment to at least "bytes" bytes.  While the
+   * segment is a single chunk smaller than CHUNK_SIZE, that chunk is doubled
+   * by mapping twice as much of the file, which keeps its contents; after
+   * that, whole chunks are appended.
+   */
+  void ensureCapacity(long bytes) {
+    while (capacity() < bytes) {
+      if (chunkCount == 0) {
+        int size = MIN_FIRST_CHUNK;
+        while (size < bytes && size < CHUNK_SIZE) {
+          size <<= 1;
+        }
+        chunks[chunkCount++] = map(0, size);
+      } else if (chunkCount == 1 && chunks[0].capacity() < CHUNK_SIZE) {
+        chunks[0] = map(0, 2 * chunks[0].capacity());
+      } else {
+        if (chunkCount == chunks.length) {
+          ByteBuffer[] more = new ByteBuffer[2 * chunks.length];
+          System.arraycopy(chunks, 0, more, 0, chunkCount);
+          chunks = more;
+        }
+        chunks[chunkCount] = map((long) chunkCount << CHUNK_SHIFT, CHUNK_SIZE);
+        chunkCount++;
+      }
+    }
+  }
+
+  int getInt(long offset) {
+    return chunks[(int) (offset >>> CHUNK_SHIFT)]
+        .getInt((int) (offset & CHUNK_MASK));
+  }
+
+  void putInt(long offset, int value) {
+    chunks[(int) (offset >>> CHUNK_SHIFT)]
+        .putInt((int) (offset & CHUNK_MASK), value);
+  }
+
+  long getLong(long offset) {
+    return chunks[(int) (offset >>> CHUNK_SHIFT)]
+        .getLong((int) (offset & CHUNK_MASK));
+  }
+
+  void putLong(long offset, long value) {
+    chunks[(int) (offset >>> CHUNK_SHIFT)]
+        .putLong((int) (offset & CHUNK_MASK), value);
+  }
+
+  /**
+   * close() frees the segment's memory by truncating its file to nothing,
+   * which drops the file's pages at once, and closes the file.  Only the
+   * address space of the mappings stays reserved until the collector
+   * reclaims the (tiny) buffer objects, since this JDK cannot unmap them
+   * explicitly.  The segment must not be used afterward.
+   */
+  void close() {
+    chunks = null;
+    chunkCount = 0;
+    if (file != null) {
+      try {
+        file.setLength(0);
+        file.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        file = null;
+      }
+    }
+  }
+
+  /**
+   * map() maps "size" bytes of the file, starting at "position", extending
+   * the file with zeroes if need be.
+   */
+  private ByteBuffer map(long position, int size) {
+    try {
+      return file.getChannel()
+          .map(FileChannel.MapMode.READ_WRITE, position, size)
+          .order(ByteOrder.nativeOrder());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
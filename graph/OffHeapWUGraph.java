@@ -0,0 +1,475 @@
+/* OffHeapWUGraph.java */
+
+package graph;
+
+/**
+ * The OffHeapWUGraph class represents a weighted, undirected graph whose
+ * vertices are int ids, stored entirely outside the Java heap.  Self-edges
+ * are permitted.  It offers the same operations as IntWUGraph, and its heap
+ * footprint stays a few hundred bytes no matter how big the graph gets, so
+ * the collector never has to scan it.
+ *
+ * The layout mirrors IntWUGraph, with each parallel int array replaced by a
+ * fixed-size record in an OffHeapSegment:
+ *  - vertex v is a 20-byte record: id, degree, first half-edge, prev, next
+ *  - edge e is a 28-byte record: weight, then half-edges 2e and 2e+1 as
+ *    (neighbor, next, prev) triples, so a half-edge's partner is h ^ 1
+ *  - OffHeapLongIntTables map vertex ids to vertex indices, and packed pairs
+ *    of vertex indices to edge numbers
+ *
+ * The segments are mappings of deleted temporary files (see OffHeapSegment),
+ * so the graph is not limited by -XX:MaxDirectMemorySize.  The graph holds
+ * that memory until close() is called; it must not be used afterward.
+ */
+public class OffHeapWUGraph implements AutoCloseable {
+
+  private static final int NONE = -1;
+
+  /** Vertex record layout. */
+  private static final int VERTEX_BYTES = 20;
+  private static final int V_ID = 0;
+  private static final int V_DEGREE = 4;
+  private static final int V_ADJ = 8;
+  private static final int V_PREV = 12;
+  private static final int V_NEXT = 16;
+
+  /** Edge record layout; each half-edge is a 12-byte triple after weight. */
+  private static final int EDGE_BYTES = 28;
+  private static final int E_WEIGHT = 0;
+  private static final int HALF_BASE = 4;
+  private static final int HALF_BYTES = 12;
+  private static final int H_TARGET = 0;
+  private static final int H_NEXT = 4;
+  private static final int H_PREV = 8;
+
+  /** Number of vertices. */
+  private int vertexCount;
+
+  /** Number of undirected edges (self-edges count once). */
+  private int edgeCount;
+
+  private OffHeapLongIntTable vertexTable;
+  private OffHeapSegment vertices;
+  private int vertexHead;
+  private int vertexFree;
+  private int vertexTop;
+
+  private OffHeapLongIntTable edgeTable;
+  private OffHeapSegment edges;
+  private int edgeFree;
+  private int edgeTop;
+
+  /**
+   * Construct an empty graph.
+   */
+  public OffHeapWUGraph() {
+    this(0, 0);
+  }
+
+  /**
+   * Construct an empty graph presized to hold the given numbers of vertices
+   * and edges without growing.
+   */
+  public OffHeapWUGraph(int expectedVertices, int expectedEdges) {
+    vertexTable = new OffHeapLongIntTable(expectedVertices);
+    vertices = new OffHeapSegment((long) VERTEX_BYTES * expectedVertices);
+    vertexHead = NONE;
+    vertexFree = NONE;
+    vertexTop = 0;
+
+    edgeTable = new OffHeapLongIntTable(expectedEdges);
+    edges = new OffHeapSegment((long) EDGE_BYTES * expectedEdges);
+    edgeFree = NONE;
+    edgeTop = 0;
+
+    vertexCount = 0;
+    edgeCount = 0;
+  }
+
+  /**
+   * close() frees the memory of all of the graph's segments and tables.
+   * Their mappings' address space is released later, when the collector
+   * reclaims the buffer objects.
+   */
+  public void close() {
+    vertexTable.close();
+    vertices.close();
+    edgeTable.close();
+    edges.close();
+  }
+
+  /**
+   * Returns the number of vertices.
+   */
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * Returns the number of edges (self-edges count once).
+   */
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * getVertices() returns all vertex ids as an array.
+   *
+   * Running time: O(|V|).
+   */
+  public int[] getVertices() {
+    int[] verts = new int[vertexCount];
+    int i = 0;
+    for (int cur = vertexHead; cur != NONE; cur = vGet(cur, V_NEXT)) {
+      verts[i++] = vGet(cur, V_ID);
+    }
+    return verts;
+  }
+
+  /**
+   * getEdges() writes every edge once into the first edgeCount() entries of
+   * u, v and weight.  Endpoints are written as indices into the array that
+   * getVertices() returns, so callers can number vertices densely without
+   * hashing.
+   *
+   * Running time: O(|V| + |E|).
+   */
+  public void getEdges(int[] u, int[] v, int[] weight) {
+    int[] dense = new int[vertexTop];
+    int i = 0;
+    for (int cur = vertexHead; cur != NONE; cur = vGet(cur, V_NEXT)) {
+      dense[cur] = i++;
+    }
+    int k = 0;
+    for (int cur = vertexHead; cur != NONE; cur = vGet(cur, V_NEXT)) {
+      for (int h = vGet(cur, V_ADJ); h != NONE; h = hGet(h, H_NEXT)) {
+        // Every edge has exactly one listed even half-edge.
+        if ((h & 1) == 0) {
+          u[k] = dense[cur];
+          v[k] = dense[hGet(h, H_TARGET)];
+          weight[k] = edges.getInt(eOff(h >> 1) + E_WEIGHT);
+          k++;
+        }
+      }
+    }
+  }
+
+  /**
+   * addVertex() adds a vertex (with no incident edges).  If already present,
+   * do nothing.
+   *
+   * Running time: O(1) amortized.
+   */
+  public void addVertex(int vertex) {
+    if (vertexTable.get(vertex) >= 0) {
+      return;
+    }
+    int v = allocVertex();
+    vSet(v, V_ID, vertex);
+    vSet(v, V_DEGREE, 0);
+    vSet(v, V_ADJ, NONE);
+
+    // Insert at head of global vertex list.
+    vSet(v, V_PREV, NONE);
+    vSet(v, V_NEXT, vertexHead);
+    if (vertexHead != NONE) {
+      vSet(vertexHead, V_PREV, v);
+    }
+    vertexHead = v;
+
+    vertexTable.put(vertex, v);
+    vertexCount++;
+  }
+
+  /**
+   * removeVertex() deletes a vertex and all incident edges.
+   *
+   * Running time: O(d) where d is the degree.
+   */
+  public void removeVertex(int vertex) {
+    int v = vertexTable.remove(vertex);
+    if (v < 0) {
+      return;
+    }
+
+    // Remove all incident edges.  v's own list is discarded wholesale, so
+    // only the partner half-edges need unlinking.
+    int h = vGet(v, V_ADJ);
+    while (h != NONE) {
+      int next = hGet(h, H_NEXT);
+      int w = hGet(h, H_TARGET);
+      if (w != v) {
+        unlinkHalf(w, h ^ 1);
+        vSet(w, V_DEGREE, vGet(w, V_DEGREE) - 1);
+      }
+      edgeTable.remove(pairKey(v, w));
+      freeEdge(h >> 1);
+      edgeCount--;
+      h = next;
+    }
+
+    // Remove v itself from global vertex list.
+    int prev = vGet(v, V_PREV);
+    int next = vGet(v, V_NEXT);
+    if (prev != NONE) {
+      vSet(prev, V_NEXT, next);
+    } else {
+      vertexHead = next;
+    }
+    if (next != NONE) {
+      vSet(next, V_PREV, prev);
+    }
+
+    vSet(v, V_NEXT, vertexFree);
+    vertexFree = v;
+    vertexCount--;
+  }
+
+  /**
+   * isVertex() returns true if vertex is in the graph.
+   *
+   * Running time: O(1).
+   */
+  public boolean isVertex(int vertex) {
+    return vertexTable.get(vertex) >= 0;
+  }
+
+  /**
+   * degree() returns degree of vertex, self-edge counts as 1.
+   * Returns 0 if not a vertex.
+   *
+   * Running time: O(1).
+   */
+  public int degree(int vertex) {
+    int v = vertexTable.get(vertex);
+    if (v < 0) {
+      return 0;
+    }
+    return vGet(v, V_DEGREE);
+  }
+
+  /**
+   * getNeighbors() returns the neighbors of a vertex as an array of pairs:
+   * entry 2i is the id of the i-th neighbor and entry 2i+1 is the weight of
+   * the edge to it.  Returns null if the vertex does not exist or has
+   * degree 0.
+   *
+   * Running time: O(d).
+   */
+  public int[] getNeighbors(int vertex) {
+    int v = vertexTable.get(vertex);
+    if (v < 0 || vGet(v, V_DEGREE) == 0) {
+      return null;
+    }
+
+    int[] pairs = new int[2 * vGet(v, V_DEGREE)];
+    int i = 0;
+    for (int h = vGet(v, V_ADJ); h != NONE; h = hGet(h, H_NEXT)) {
+      pairs[i++] = vGet(hGet(h, H_TARGET), V_ID);
+      pairs[i++] = edges.getInt(eOff(h >> 1) + E_WEIGHT);
+    }
+    return pairs;
+  }
+
+  /**
+   * addEdge() adds or updates an edge (u,v) with given weight.
+   * Self-edges (u,u) are allowed.
+   *
+   * Running time: O(1) amortized.
+   */
+  public void addEdge(int u, int v, int weight) {
+    int iu = vertexTable.get(u);
+    int iv = vertexTable.get(v);
+    if (iu < 0 || iv < 0) {
+      return;
+    }
+
+    long key = pairKey(iu, iv);
+    int e = edgeTable.get(key);
+    if (e >= 0) {
+      // Edge already exists - both halves share one weight.
+      edges.putInt(eOff(e) + E_WEIGHT, weight);
+      return;
+    }
+
+    e = allocEdge();
+    edges.putInt(eOff(e) + E_WEIGHT, weight);
+    hSet(2 * e, H_TARGET, iv);
+    hSet(2 * e + 1, H_TARGET, iu);
+
+    linkHalf(iu, 2 * e);
+    vSet(iu, V_DEGREE, vGet(iu, V_DEGREE) + 1);
+    if (iu != iv) {
+      linkHalf(iv, 2 * e + 1);
+      vSet(iv, V_DEGREE, vGet(iv, V_DEGREE) + 1);
+    }
+
+    edgeTable.put(key, e);
+    edgeCount++;
+  }
+
+  /**
+   * removeEdge() removes edge (u,v) if it exists.
+   *
+   * Running time: O(1).
+   */
+  public void removeEdge(int u, int v) {
+    int iu = vertexTable.get(u);
+    int iv = vertexTable.get(v);
+    if (iu < 0 || iv < 0) {
+      return;
+    }
+
+    int e = edgeTable.remove(pairKey(iu, iv));
+    if (e < 0) {
+      return;
+    }
+
+    // Half-edge h belongs to the list of the vertex that h ^ 1 points at.
+    int owner = hGet(2 * e + 1, H_TARGET);
+    unlinkHalf(owner, 2 * e);
+    vSet(owner, V_DEGREE, vGet(owner, V_DEGREE) - 1);
+    if (iu != iv) {
+      int other = hGet(2 * e, H_TARGET);
+      unlinkHalf(other, 2 * e + 1);
+      vSet(other, V_DEGREE, vGet(other, V_DEGREE) - 1);
+    }
+
+    freeEdge(e);
+    edgeCount--;
+  }
+
+  /**
+   * isEdge() returns true if (u,v) is an edge.
+   * Returns false if either is not a vertex or edge does not exist.
+   *
+   * Running time: O(1).
+   */
+  public boolean isEdge(int u, int v) {
+    int iu = vertexTable.get(u);
+    int iv = vertexTable.get(v);
+    if (iu < 0 || iv < 0) {
+      return false;
+    }
+    return edgeTable.get(pairKey(iu, iv)) >= 0;
+  }
+
+  /**
+   * weight() returns weight of (u,v) or 0 if no such edge.
+   *
+   * Running time: O(1).
+   */
+  public int weight(int u, int v) {
+    int iu = vertexTable.get(u);
+    int iv = vertexTable.get(v);
+    if (iu < 0 || iv < 0) {
+      return 0;
+    }
+    int e = edgeTable.get(pairKey(iu, iv));
+    if (e < 0) {
+      return 0;
+    }
+    return edges.getInt(eOff(e) + E_WEIGHT);
+  }
+
+  /**
+   * pairKey() packs an unordered pair of internal vertex indices into a long,
+   * smaller index in the high half, so (a,b) and (b,a) give the same key.
+   */
+  private static long pairKey(int a, int b) {
+    if (a > b) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    return ((long) a << 32) | b;
+  }
+
+  private int vGet(int v, int field) {
+    return vertices.getInt((long) VERTEX_BYTES * v + field);
+  }
+
+  private void vSet(int v, int field, int value) {
+    vertices.putInt((long) VERTEX_BYTES * v + field, value);
+  }
+
+  private static long eOff(int e) {
+    return (long) EDGE_BYTES * e;
+  }
+
+  private static long hOff(int h) {
+    return eOff(h >> 1) + HALF_BASE + HALF_BYTES * (h & 1);
+  }
+
+  private int hGet(int h, int field) {
+    return edges.getInt(hOff(h) + field);
+  }
+
+  private void hSet(int h, int field, int value) {
+    edges.putInt(hOff(h) + field, value);
+  }
+
+  /**
+   * Helper to insert half-edge h at the head of vertex v's adjacency list.
+   */
+  private void linkHalf(int v, int h) {
+    int head = vGet(v, V_ADJ);
+    hSet(h, H_PREV, NONE);
+    hSet(h, H_NEXT, head);
+    if (head != NONE) {
+      hSet(head, H_PREV, h);
+    }
+    vSet(v, V_ADJ, h);
+  }
+
+  /**
+   * Helper to unlink half-edge h from vertex v's adjacency list.
+   * Does not touch degree, edgeCount, or edgeTable.
+   */
+  private void unlinkHalf(int v, int h) {
+    int prev = hGet(h, H_PREV);
+    int next = hGet(h, H_NEXT);
+    if (prev != NONE) {
+      hSet(prev, H_NEXT, next);
+    } else {
+      vSet(v, V_ADJ, next);
+    }
+    if (next != NONE) {
+      hSet(next, H_PREV, prev);
+    }
+  }
+
+  /**
+   * allocVertex() returns an unused vertex index, reusing freed ones first.
+   */
+  private int allocVertex() {
+    if (vertexFree != NONE) {
+      int v = vertexFree;
+      vertexFree = vGet(v, V_NEXT);
+      return v;
+    }
+    vertices.ensureCapacity((long) VERTEX_BYTES * (vertexTop + 1));
+    return vertexTop++;
+  }
+
+  /**
+   * allocEdge() returns an unused edge number, reusing freed ones first.
+   */
+  private int allocEdge() {
+    if (edgeFree != NONE) {
+      int e = edgeFree;
+      edgeFree = hGet(2 * e, H_NEXT);
+      return e;
+    }
+    edges.ensureCapacity(eOff(edgeTop + 1));
+    return edgeTop++;
+  }
+
+  /**
+   * freeEdge() returns edge number e to the free list.
+   */
+  private void freeEdge(int e) {
+    hSet(2 * e, H_NEXT, edgeFree);
+    edgeFree = e;
+  }
+}
@@ -2,6 +2,7 @@
 
 package graph;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
@@ -11,11 +12,24 @@ import java.util.HashMap;
  * This implementation uses:
  *  - a HashMap<Object,Vertex> to map vertex objects to internal records
  *  - a doubly-linked list of all vertices for getVertices()
- *  - for each vertex, a doubly-linked adjacency list of EdgeNode objects
- *  - a HashMap<VertexPair,EdgeNode> to find edges in O(1)
+ *  - for each vertex, a contiguous adjacency array of (neighbor id, weight,
+ *    half-edge) entries, so neighbor scans walk memory sequentially.  Edge e
+ *    owns half-edges 2e and 2e+1, so a half-edge's partner is always h ^ 1,
+ *    and each half-edge records its index in its owner's adjacency array.
+ *    That index lets an entry be removed in O(1) by moving the last entry of
+ *    the array into its place.  Freed edge ids go on a free list.
+ *  - a LongIntTable to find edges in O(1).  Its key is the unordered pair of
+ *    internal vertex ids packed into a long, and its value is the edge id.
+ *    Lookups hash one long and allocate nothing.
+ *
+ * isEdge(), weight(), addEdge() and removeEdge() hash each endpoint once (a
+ * self-edge's endpoint only once) and allocate nothing, except when addEdge()
+ * has to grow an array.
  */
 public class WUGraph {
 
+  private static final int NONE = -1;
+
   /** Number of vertices. */
   private int vertexCount;
 
@@ -29,8 +43,38 @@ public class WUGraph {
   private Vertex vertexHead;
   private Vertex vertexTail;
 
-  /** Map from undirected pair (u,v) to one EdgeNode of that edge. */
-  private HashMap<VertexPair, EdgeNode> edgeTable;
+  /** Live vertices, indexed by internal vertex id. */
+  private Vertex[] vertexById;
+
+  /** Stack of vertex ids freed for reuse. */
+  private int[] freeVertexIds;
+  private int freeVertexCount;
+
+  /** Number of vertex ids ever handed out. */
+  private int vertexIdTop;
+
+  /** Map from packed pair of vertex ids (see pairKey()) to edge id. */
+  private LongIntTable edgeTable;
+
+  /**
+   * Half-edge storage, indexed by half-edge number.
+   *
+   * For a non-self edge (u,v) with edge id e there are TWO half-edges:
+   *  - 2e in u's adjacency array with neighbor v
+   *  - 2e+1 in v's adjacency array with neighbor u
+   *
+   * For a self-edge (u,u) only half-edge 2e is in u's adjacency array; 2e+1
+   * is unused but still records neighbor u.  In both cases halfNeighbor[h ^ 1]
+   * is the vertex whose array h belongs to.
+   */
+  private int[] halfNeighbor;   // internal id of the neighbor (or free list)
+  private int[] halfIndex;      // index of h in its owner's adjacency array
+
+  /** Head of the list of freed edge ids, threaded through halfNeighbor. */
+  private int edgeFree;
+
+  /** Number of edge ids ever handed out. */
+  private int edgeIdTop;
 
   /** Internal vertex record. */
   private class Vertex {
@@ -38,52 +82,57 @@ public class WUGraph {
     int degree;         // number of incident edges; self-edge adds 1
     Vertex prev;        // previous in global list
     Vertex next;        // next in global list
-    EdgeNode adj;       // head of adjacency list
+    int id;             // internal vertex id, unique among live vertices
+
+    // Adjacency array; entries 0..degree-1 are in use.
+    int[] adjNeighbor;  // internal id of the neighbor
+    int[] adjWeight;    // weight of the edge to that neighbor
+    int[] adjHalf;      // the half-edge this entry represents
 
     Vertex(Object v) {
       appVertex = v;
       degree = 0;
       prev = null;
       next = null;
-      adj = null;
+      adjNeighbor = EMPTY;
+      adjWeight = EMPTY;
+      adjHalf = EMPTY;
     }
   }
 
+  /** Shared adjacency array for vertices with no edges yet. */
+  private static final int[] EMPTY = new int[0];
+
   /**
-   * Internal adjacency node.
-   *
-   * For a non-self edge (u,v) there are TWO EdgeNode objects:
-   *  - one in u's adjacency list with neighbor=v
-   *  - one in v's adjacency list with neighbor=u
-   * They point at each other via partner.
-   *
-   * For a self-edge (u,u) there is ONE EdgeNode in u's adjacency list and
-   * partner points to itself.
+   * Construct an empty graph.
    */
-  private class EdgeNode {
-    Object neighbor;
-    int weight;
-    EdgeNode prev;      // previous in this vertex's adjacency list
-    EdgeNode next;      // next in this vertex's adjacency list
-    EdgeNode partner;   // the corresponding half-edge, or self for self-edge
-
-    EdgeNode(Object n, int w) {
-      neighbor = n;
-      weight = w;
-      prev = null;
-      next = null;
-      partner = null;
-    }
+  public WUGraph() {
+    this(0, 0);
   }
 
   /**
-   * Construct an empty graph.
+   * Construct an empty graph that can hold expectedVertices vertices and
+   * expectedEdges edges before any of its tables or arrays has to grow.
    */
-  public WUGraph() {
-    vertexTable = new HashMap<Object, Vertex>();
-    edgeTable = new HashMap<VertexPair, EdgeNode>();
+  public WUGraph(int expectedVertices, int expectedEdges) {
+    int vertexCap = Math.max(8, expectedVertices);
+    int halfCap = 2 * Math.max(8, expectedEdges);
+
+    vertexTable = new HashMap<Object, Vertex>(
+        Math.max(16, (int) (expectedVertices / 0.75f) + 1));
     vertexHead = null;
     vertexTail = null;
+    vertexById = new Vertex[vertexCap];
+    freeVertexIds = new int[8];
+    freeVertexCount = 0;
+    vertexIdTop = 0;
+
+    edgeTable = new LongIntTable(expectedEdges);
+    halfNeighbor = new int[halfCap];
+    halfIndex = new int[halfCap];
+    edgeFree = NONE;
+    edgeIdTop = 0;
+
     vertexCount = 0;
     edgeCount = 0;
   }
@@ -122,13 +171,15 @@ public class WUGraph {
    * addVertex() adds a vertex (with no incident edges).  If already present,
    * do nothing.
    *
-   * Running time: O(1).
+   * Running time: O(1) amortized.
    */
   public void addVertex(Object vertex) {
     if (isVertex(vertex)) {
       return;
     }
     Vertex v = new Vertex(vertex);
+    v.id = allocVertexId();
+    vertexById[v.id] = v;
 
     // Insert at head of global vertex list.
     v.next = vertexHead;
@@ -149,41 +200,28 @@ public class WUGraph {
    * Running time: O(d) where d is the degree.
    */
   public void removeVertex(Object vertex) {
-    Vertex v = vertexTable.get(vertex);
+    Vertex v = vertexTable.remove(vertex);
     if (v == null) {
       return;
     }
 
-    // Remove all incident edges.
-    EdgeNode e = v.adj;
-    while (e != null) {
-      EdgeNode nextEdge = e.next;  // save before we unlink
-
-      Object neighObj = e.neighbor;
-      VertexPair key = new VertexPair(vertex, neighObj);
-      EdgeNode partner = e.partner;
-
-      if (neighObj.equals(vertex)) {
-        // Self-edge: only v involved.
-        unlinkEdgeFromAdjacency(v, e);
-        v.degree--;
-        edgeCount--;
-      } else {
+    // Remove all incident edges.  v's own array is discarded wholesale, so
+    // only the partner half-edges need removing.
+    for (int i = 0; i < v.degree; i++) {
+      int h = v.adjHalf[i];
+      int w = v.adjNeighbor[i];
+      if (w != v.id) {
         // Regular edge: v and some neighbor w.
-        Vertex w = vertexTable.get(neighObj);
-        if (w != null && partner != null) {
-          unlinkEdgeFromAdjacency(w, partner);
-          w.degree--;
-        }
-        unlinkEdgeFromAdjacency(v, e);
-        v.degree--;
-        edgeCount--;
+        removeHalf(vertexById[w], h ^ 1);
       }
-
-      edgeTable.remove(key);
-
-      e = nextEdge;
+      edgeTable.remove(pairKey(v.id, w));
+      freeEdgeId(h >> 1);
+      edgeCount--;
     }
+    v.degree = 0;
+    v.adjNeighbor = EMPTY;
+    v.adjWeight = EMPTY;
+    v.adjHalf = EMPTY;
 
     // Remove v itself from global vertex list.
     if (v.prev != null) {
@@ -197,23 +235,45 @@ public class WUGraph {
       vertexTail = v.prev;
     }
 
-    vertexTable.remove(vertex);
+    freeVertexId(v.id);
     vertexCount--;
   }
 
   /**
-   * Helper to unlink one EdgeNode from its owner's adjacency list.
-   * Does not touch degree, edgeCount, or edgeTable.
+   * Helper to append half-edge h, with its neighbor and weight, to owner's
+   * adjacency array, growing the array if it is full.  Increments degree.
    */
-  private void unlinkEdgeFromAdjacency(Vertex owner, EdgeNode e) {
-    if (e.prev != null) {
-      e.prev.next = e.next;
-    } else {
-      owner.adj = e.next;
+  private void appendHalf(Vertex owner, int h, int neighbor, int weight) {
+    int i = owner.degree;
+    if (i == owner.adjHalf.length) {
+      int cap = Math.max(4, 2 * i);
+      owner.adjNeighbor = Arrays.copyOf(owner.adjNeighbor, cap);
+      owner.adjWeight = Arrays.copyOf(owner.adjWeight, cap);
+      owner.adjHalf = Arrays.copyOf(owner.adjHalf, cap);
     }
-    if (e.next != null) {
-      e.next.prev = e.prev;
+    owner.adjNeighbor[i] = neighbor;
+    owner.adjWeight[i] = weight;
+    owner.adjHalf[i] = h;
+    halfIndex[h] = i;
+    owner.degree = i + 1;
+  }
+
+  /**
+   * Helper to remove half-edge h from owner's adjacency array by moving the
+   * last entry into its place.  Decrements degree.  Does not touch
+   * edgeCount or edgeTable.
+   */
+  private void removeHalf(Vertex owner, int h) {
+    int i = halfIndex[h];
+    int last = owner.degree - 1;
+    if (i != last) {
+      int moved = owner.adjHalf[last];
+      owner.adjNeighbor[i] = owner.adjNeighbor[last];
+      owner.adjWeight[i] = owner.adjWeight[last];
+      owner.adjHalf[i] = moved;
+      halfIndex[moved] = i;
     }
+    owner.degree = last;
   }
 
   /**
@@ -255,85 +315,196 @@ public class WUGraph {
     neigh.neighborList = new Object[v.degree];
     neigh.weightList = new int[v.degree];
 
-    EdgeNode cur = v.adj;
-    int i = 0;
-    while (cur != null && i < v.degree) {
-      neigh.neighborList[i] = cur.neighbor;
-      neigh.weightList[i] = cur.weight;
-      cur = cur.next;
-      i++;
+    int[] adjNeighbor = v.adjNeighbor;
+    for (int i = 0; i < v.degree; i++) {
+      neigh.neighborList[i] = vertexById[adjNeighbor[i]].appVertex;
     }
+    System.arraycopy(v.adjWeight, 0, neigh.weightList, 0, v.degree);
     return neigh;
   }
 
   /**
-   * addEdge() adds or updates an edge (u,v) with given weight.
-   * Self-edges (u,u) are allowed.
+   * getNeighbors() fills batch with the neighbors of vertices[0..count-1] in
+   * one pass, one row per vertex in the order given.  A vertex that is not in
+   * the graph gets an empty row.  The batch's arrays grow if they are too
+   * small, and are otherwise reused as they are.
    *
-   * Running time: O(1).
+   * Running time: O(count + total degree), amortized over buffer growth.
    */
-  public void addEdge(Object u, Object v, int weight) {
-    if (!isVertex(u) || !isVertex(v)) {
-      return;
+  public void getNeighbors(Object[] vertices, int count, NeighborBatch batch) {
+    if (batch.offsets.length < count + 1) {
+      batch.offsets = new int[Math.max(count + 1, 2 * batch.offsets.length)];
+    }
+    int[] offsets = batch.offsets;
+    Object[] neighborList = batch.neighborList;
+    int[] weightList = batch.weightList;
+
+    int size = 0;
+    for (int r = 0; r < count; r++) {
+      offsets[r] = size;
+      Vertex v = vertexTable.get(vertices[r]);
+      if (v == null) {
+        continue;
+      }
+      int degree = v.degree;
+      if (size + degree > neighborList.length) {
+        int cap = Math.max(size + degree, 2 * neighborList.length);
+        neighborList = Arrays.copyOf(neighborList, cap);
+        weightList = Arrays.copyOf(weightList, cap);
+      }
+      int[] adjNeighbor = v.adjNeighbor;
+      for (int i = 0; i < degree; i++) {
+        neighborList[size + i] = vertexById[adjNeighbor[i]].appVertex;
+      }
+      System.arraycopy(v.adjWeight, 0, weightList, size, degree);
+      size += degree;
     }
+    offsets[count] = size;
 
-    VertexPair key = new VertexPair(u, v);
-    EdgeNode existing = edgeTable.get(key);
+    batch.rowCount = count;
+    batch.neighborList = neighborList;
+    batch.weightList = weightList;
+  }
 
-    if (existing != null) {
-      // Edge already exists - just update weight on both halves.
-      existing.weight = weight;
-      if (existing.partner != null && existing.partner != existing) {
-        existing.partner.weight = weight;
-      }
+  /**
+   * forEachNeighbor() calls visitor.visit() once for each edge incident on
+   * vertex, in the same order as getNeighbors(), reading the adjacency array
+   * in place.  Does nothing if vertex is not in the graph.  The visitor must
+   * not modify the graph.
+   *
+   * Running time: O(d), with no allocation.
+   */
+  public void forEachNeighbor(Object vertex, NeighborVisitor visitor) {
+    Vertex v = vertexTable.get(vertex);
+    if (v == null) {
       return;
     }
+    int[] adjNeighbor = v.adjNeighbor;
+    int[] adjWeight = v.adjWeight;
+    int degree = v.degree;
+    for (int i = 0; i < degree; i++) {
+      visitor.visit(vertexById[adjNeighbor[i]].appVertex, adjWeight[i]);
+    }
+  }
 
-    Vertex U = vertexTable.get(u);
-    Vertex V = vertexTable.get(v);
+  /**
+   * newCursor() returns a NeighborCursor over this graph.  A cursor can be
+   * reset() to any number of vertices in turn, so one cursor serves a whole
+   * traversal.
+   */
+  public NeighborCursor newCursor() {
+    return new NeighborCursor();
+  }
 
-    if (u.equals(v)) {
-      // Self-edge: single EdgeNode in U's list.
-      EdgeNode e = new EdgeNode(u, weight);
-      e.partner = e;
+  /**
+   * A NeighborCursor walks one vertex's adjacency array in place, without
+   * copying it.  Typical use:
+   *
+   *   WUGraph.NeighborCursor c = g.newCursor();
+   *   c.reset(u);
+   *   while (c.next()) {
+   *     ... c.neighbor() ... c.weight() ...
+   *   }
+   *
+   * The graph must not be modified while a cursor is in use; reset() the
+   * cursor again after any change.
+   */
+  public class NeighborCursor {
+    private int[] adjNeighbor;
+    private int[] adjWeight;
+    private int degree;
+    private int pos;
+
+    private NeighborCursor() {
+      adjNeighbor = EMPTY;
+      adjWeight = EMPTY;
+      degree = 0;
+      pos = -1;
+    }
 
-      // Insert at head of U.adj.
-      e.next = U.adj;
-      if (U.adj != null) {
-        U.adj.prev = e;
+    /**
+     * reset() positions the cursor before the first neighbor of vertex.
+     * Returns false (and leaves the cursor empty) if vertex is not in the
+     * graph.
+     *
+     * Running time: O(1).
+     */
+    public boolean reset(Object vertex) {
+      Vertex v = vertexTable.get(vertex);
+      pos = -1;
+      if (v == null) {
+        adjNeighbor = EMPTY;
+        adjWeight = EMPTY;
+        degree = 0;
+        return false;
       }
-      U.adj = e;
+      adjNeighbor = v.adjNeighbor;
+      adjWeight = v.adjWeight;
+      degree = v.degree;
+      return true;
+    }
 
-      U.degree++;
-      edgeCount++;
-      edgeTable.put(key, e);
-    } else {
-      // Regular edge: create two half-edges.
-      EdgeNode eUV = new EdgeNode(v, weight);
-      EdgeNode eVU = new EdgeNode(u, weight);
+    /**
+     * next() advances to the next neighbor and returns true, or returns false
+     * if there are no more.
+     */
+    public boolean next() {
+      if (pos + 1 < degree) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
 
-      eUV.partner = eVU;
-      eVU.partner = eUV;
+    /**
+     * neighbor() returns the vertex object at the cursor.
+     */
+    public Object neighbor() {
+      return vertexById[adjNeighbor[pos]].appVertex;
+    }
 
-      // Insert at head of U.adj.
-      eUV.next = U.adj;
-      if (U.adj != null) {
-        U.adj.prev = eUV;
-      }
-      U.adj = eUV;
+    /**
+     * weight() returns the weight of the edge at the cursor.
+     */
+    public int weight() {
+      return adjWeight[pos];
+    }
+  }
 
-      // Insert at head of V.adj.
-      eVU.next = V.adj;
-      if (V.adj != null) {
-        V.adj.prev = eVU;
-      }
-      V.adj = eVU;
+  /**
+   * addEdge() adds or updates an edge (u,v) with given weight.
+   * Self-edges (u,u) are allowed.
+   *
+   * Running time: O(1) amortized.
+   */
+  public void addEdge(Object u, Object v, int weight) {
+    Vertex U = vertexTable.get(u);
+    Vertex V = (v == u) ? U : vertexTable.get(v);
+    if (U == null || V == null) {
+      return;
+    }
+
+    long key = pairKey(U.id, V.id);
+    int existing = edgeTable.get(key);
+
+    if (existing >= 0) {
+      // Edge already exists - just update weight on both halves.
+      setWeight(existing, weight);
+      return;
+    }
+
+    int e = allocEdgeId();
+    halfNeighbor[2 * e] = V.id;
+    halfNeighbor[2 * e + 1] = U.id;
 
-      U.degree++;
-      V.degree++;
-      edgeCount++;
-      edgeTable.put(key, eUV);
+    // Append to U's array, and for a regular edge to V's array.
+    appendHalf(U, 2 * e, V.id, weight);
+    if (U != V) {
+      appendHalf(V, 2 * e + 1, U.id, weight);
     }
+
+    edgeCount++;
+    edgeTable.put(key, e);
   }
 
   /**
@@ -342,39 +513,26 @@ public class WUGraph {
    * Running time: O(1).
    */
   public void removeEdge(Object u, Object v) {
-    if (!isVertex(u) || !isVertex(v)) {
+    Vertex U = vertexTable.get(u);
+    Vertex V = (v == u) ? U : vertexTable.get(v);
+    if (U == null || V == null) {
       return;
     }
 
-    VertexPair key = new VertexPair(u, v);
-    EdgeNode e = edgeTable.get(key);
-    if (e == null) {
+    int e = edgeTable.remove(pairKey(U.id, V.id));
+    if (e < 0) {
       return;
     }
 
-    Vertex U = vertexTable.get(u);
-    Vertex V = vertexTable.get(v);
-    EdgeNode partner = e.partner;
-
-    edgeTable.remove(key);
-
-    if (u.equals(v)) {
-      // Self-edge.
-      unlinkEdgeFromAdjacency(U, e);
-      U.degree--;
-      edgeCount--;
-    } else {
-      // Regular edge.
-      unlinkEdgeFromAdjacency(U, e);
-      if (V != null && partner != null) {
-        unlinkEdgeFromAdjacency(V, partner);
-      }
-      U.degree--;
-      if (V != null) {
-        V.degree--;
-      }
-      edgeCount--;
+    // Half-edge h belongs to the array of vertex halfNeighbor[h ^ 1], which
+    // is v's array for 2e if the edge was added as addEdge(v, u).
+    removeHalf(vertexById[halfNeighbor[2 * e + 1]], 2 * e);
+    if (U != V) {
+      removeHalf(vertexById[halfNeighbor[2 * e]], 2 * e + 1);
     }
+
+    freeEdgeId(e);
+    edgeCount--;
   }
 
   /**
@@ -384,11 +542,12 @@ public class WUGraph {
    * Running time: O(1).
    */
   public boolean isEdge(Object u, Object v) {
-    if (!isVertex(u) || !isVertex(v)) {
+    Vertex U = vertexTable.get(u);
+    Vertex V = (v == u) ? U : vertexTable.get(v);
+    if (U == null || V == null) {
       return false;
     }
-    VertexPair key = new VertexPair(u, v);
-    return edgeTable.containsKey(key);
+    return edgeTable.get(pairKey(U.id, V.id)) >= 0;
   }
 
   /**
@@ -397,14 +556,324 @@ public class WUGraph {
    * Running time: O(1).
    */
   public int weight(Object u, Object v) {
-    if (!isVertex(u) || !isVertex(v)) {
+    Vertex U = vertexTable.get(u);
+    Vertex V = (v == u) ? U : vertexTable.get(v);
+    if (U == null || V == null) {
       return 0;
     }
-    VertexPair key = new VertexPair(u, v);
-    EdgeNode e = edgeTable.get(key);
-    if (e == null) {
+    int e = edgeTable.get(pairKey(U.id, V.id));
+    if (e < 0) {
       return 0;
     }
-    return e.weight;
+    return vertexById[halfNeighbor[2 * e + 1]].adjWeight[halfIndex[2 * e]];
+  }
+
+  /**
+   * Helper to set the weight of edge e in both halves' adjacency entries.
+   */
+  private void setWeight(int e, int weight) {
+    int h = 2 * e;
+    vertexById[halfNeighbor[h + 1]].adjWeight[halfIndex[h]] = weight;
+    if (halfNeighbor[h] != halfNeighbor[h + 1]) {
+      vertexById[halfNeighbor[h]].adjWeight[halfIndex[h + 1]] = weight;
+    }
+  }
+
+  /**
+   * getEdges() writes every edge once into the first edgeCount() entries of
+   * u, v and weight.  Endpoints are written as indices into the array that
+   * getVertices() returns, so callers can number vertices densely without
+   * hashing.
+   *
+   * Edges are listed row by row, each from the row of its endpoint that
+   * comes first in getVertices() (so u[k] <= v[k]), in getNeighbors() order.
+   * That is the order in which a scan of freeze()'s rows meets the slots
+   * with target >= row, so a graph and its snapshot number their edges the
+   * same way.
+   *
+   * Running time: O(|V| + |E|).
+   */
+  public void getEdges(int[] u, int[] v, int[] weight) {
+    int[] denseId = new int[vertexIdTop];
+    int i = 0;
+    for (Vertex cur = vertexHead; cur != null; cur = cur.next) {
+      denseId[cur.id] = i++;
+    }
+    int k = 0;
+    i = 0;
+    for (Vertex cur = vertexHead; cur != null; cur = cur.next) {
+      int[] adjNeighbor = cur.adjNeighbor;
+      for (int j = 0; j < cur.degree; j++) {
+        // A self-edge is listed once, in its only row.
+        int w = denseId[adjNeighbor[j]];
+        if (i <= w) {
+          u[k] = i;
+          v[k] = w;
+          weight[k] = cur.adjWeight[j];
+          k++;
+        }
+      }
+      i++;
+    }
+  }
+
+  /**
+   * freeze() returns an immutable CsrGraph snapshot of this graph.  Vertex
+   * ids follow the order of getVertices(), and each row lists neighbors in
+   * the same order as getNeighbors().  Later changes to this graph do not
+   * affect the snapshot.
+   *
+   * Running time: O(|V| + |E|).
+   */
+  public CsrGraph freeze() {
+    Object[] verts = new Object[vertexCount];
+    int[] offsets = new int[vertexCount + 1];
+    int[] denseId = new int[vertexIdTop];
+    int i = 0;
+    int slots = 0;
+    for (Vertex cur = vertexHead; cur != null; cur = cur.next) {
+      denseId[cur.id] = i;
+      verts[i] = cur.appVertex;
+      offsets[i] = slots;
+      slots += cur.degree;
+      i++;
+    }
+    offsets[i] = slots;
+
+    int[] targets = new int[slots];
+    int[] weights = new int[slots];
+    int s = 0;
+    for (Vertex cur = vertexHead; cur != null; cur = cur.next) {
+      for (int k = 0; k < cur.degree; k++) {
+        targets[s + k] = denseId[cur.adjNeighbor[k]];
+      }
+      System.arraycopy(cur.adjWeight, 0, weights, s, cur.degree);
+      s += cur.degree;
+    }
+    return new CsrGraph(verts, offsets, targets, weights, edgeCount);
+  }
+
+  /**
+   * A Builder loads a WUGraph in bulk.  Vertices and edges are added much as
+   * with addVertex() and addEdge(), but edges only go into the edge table
+   * while loading; build() then sizes every adjacency array exactly and fills
+   * them all in one pass, so no array is ever copied to grow it.  Given
+   * accurate expected counts, no table is rehashed either.
+   *
+   * When the same edge is added more than once (in either direction), the
+   * duplicate policy picks its weight:  LAST_WINS keeps the last weight, as
+   * repeated addEdge() calls would, and MIN_WEIGHT keeps the smallest.
+   * Either way the edge is stored once.  As with addEdge(), an edge whose
+   * endpoints are not both vertices is ignored.
+   *
+   * The graph built is the same, down to the order of getVertices() and of
+   * each vertex's neighbors, as the one produced by making the same calls on
+   * a new WUGraph.  A Builder builds one graph and must not be used after
+   * build().
+   *
+   *   WUGraph g = new WUGraph.Builder(n, m)
+   *       .duplicates(WUGraph.Builder.Duplicates.MIN_WEIGHT)
+   *       .addVertices(verts)
+   *       .addEdges(us, vs, weights)
+   *       .build();
+   */
+  public static class Builder {
+
+    /** How to resolve an edge that is added more than once. */
+    public enum Duplicates { LAST_WINS, MIN_WEIGHT }
+
+    private WUGraph graph;
+    private Duplicates duplicates;
+
+    /** Weight of each edge so far, indexed by edge id. */
+    private int[] edgeWeight;
+
+    /**
+     * Construct a Builder for a graph of about expectedVertices vertices and
+     * expectedEdges distinct edges.  The duplicate policy is LAST_WINS.
+     */
+    public Builder(int expectedVertices, int expectedEdges) {
+      graph = new WUGraph(expectedVertices, expectedEdges);
+      duplicates = Duplicates.LAST_WINS;
+      edgeWeight = new int[Math.max(8, expectedEdges)];
+    }
+
+    /**
+     * duplicates() sets the policy for edges added more than once.  It
+     * applies to edges added after the call.
+     */
+    public Builder duplicates(Duplicates policy) {
+      duplicates = policy;
+      return this;
+    }
+
+    /**
+     * addVertex() adds a vertex.  If already present, do nothing.
+     */
+    public Builder addVertex(Object vertex) {
+      graph.addVertex(vertex);
+      return this;
+    }
+
+    /**
+     * addVertices() adds every vertex in vertices, in order.
+     */
+    public Builder addVertices(Object[] vertices) {
+      for (int i = 0; i < vertices.length; i++) {
+        graph.addVertex(vertices[i]);
+      }
+      return this;
+    }
+
+    /**
+     * addEdge() records edge (u,v) with the given weight.
+     *
+     * Running time: O(1) amortized.
+     */
+    public Builder addEdge(Object u, Object v, int weight) {
+      WUGraph g = graph;
+      Vertex U = g.vertexTable.get(u);
+      Vertex V = (v == u) ? U : g.vertexTable.get(v);
+      if (U == null || V == null) {
+        return this;
+      }
+
+      long key = pairKey(U.id, V.id);
+      int e = g.edgeTable.get(key);
+      if (e >= 0) {
+        if (duplicates == Duplicates.LAST_WINS || weight < edgeWeight[e]) {
+          edgeWeight[e] = weight;
+        }
+        return this;
+      }
+
+      e = g.allocEdgeId();
+      if (e == edgeWeight.length) {
+        edgeWeight = Arrays.copyOf(edgeWeight, 2 * e);
+      }
+      g.halfNeighbor[2 * e] = V.id;
+      g.halfNeighbor[2 * e + 1] = U.id;
+      edgeWeight[e] = weight;
+      g.edgeTable.put(key, e);
+      return this;
+    }
+
+    /**
+     * addEdges() records the edges (u[i], v[i]) with weights weight[i], for
+     * every i, in order.  The three arrays must have the same length.
+     */
+    public Builder addEdges(Object[] u, Object[] v, int[] weight) {
+      for (int i = 0; i < u.length; i++) {
+        addEdge(u[i], v[i], weight[i]);
+      }
+      return this;
+    }
+
+    /**
+     * build() fills in the adjacency arrays and returns the graph.
+     *
+     * Running time: O(|V| + |E|).
+     */
+    public WUGraph build() {
+      WUGraph g = graph;
+      graph = null;
+      int[] halfNeighbor = g.halfNeighbor;
+      int edges = g.edgeIdTop;
+
+      // Count each vertex's degree, so its arrays are allocated once at
+      // exactly the right size.
+      int[] degree = new int[g.vertexIdTop];
+      for (int e = 0; e < edges; e++) {
+        int u = halfNeighbor[2 * e + 1];
+        int v = halfNeighbor[2 * e];
+        degree[u]++;
+        if (u != v) {
+          degree[v]++;
+        }
+      }
+      for (int id = 0; id < degree.length; id++) {
+        if (degree[id] > 0) {
+          Vertex x = g.vertexById[id];
+          x.adjNeighbor = new int[degree[id]];
+          x.adjWeight = new int[degree[id]];
+          x.adjHalf = new int[degree[id]];
+        }
+      }
+
+      // Append the halves in edge id order, which is the order of first
+      // appearance, just as addEdge() would have.
+      Vertex[] vertexById = g.vertexById;
+      for (int e = 0; e < edges; e++) {
+        int u = halfNeighbor[2 * e + 1];
+        int v = halfNeighbor[2 * e];
+        g.appendHalf(vertexById[u], 2 * e, v, edgeWeight[e]);
+        if (u != v) {
+          g.appendHalf(vertexById[v], 2 * e + 1, u, edgeWeight[e]);
+        }
+      }
+      g.edgeCount = edges;
+      edgeWeight = null;
+      return g;
+    }
+  }
+
+  /**
+   * pairKey() packs an unordered pair of vertex ids into a long, smaller id
+   * in the high half, so (a,b) and (b,a) give the same key.
+   */
+  private static long pairKey(int a, int b) {
+    if (a > b) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    return ((long) a << 32) | b;
+  }
+
+  /**
+   * allocVertexId() returns an unused vertex id, reusing freed ones first so
+   * that ids stay below the peak vertex count.
+   */
+  private int allocVertexId() {
+    if (freeVertexCount > 0) {
+      return freeVertexIds[--freeVertexCount];
+    }
+    if (vertexIdTop == vertexById.length) {
+      vertexById = Arrays.copyOf(vertexById, 2 * vertexById.length);
+    }
+    return vertexIdTop++;
+  }
+
+  private void freeVertexId(int id) {
+    vertexById[id] = null;
+    if (freeVertexCount == freeVertexIds.length) {
+      freeVertexIds = Arrays.copyOf(freeVertexIds, 2 * freeVertexCount);
+    }
+    freeVertexIds[freeVertexCount++] = id;
+  }
+
+  /**
+   * allocEdgeId() returns an unused edge id, reusing freed ones first and
+   * growing the half-edge arrays when they are full.
+   */
+  private int allocEdgeId() {
+    if (edgeFree != NONE) {
+      int e = edgeFree;
+      edgeFree = halfNeighbor[2 * e];
+      return e;
+    }
+    if (2 * edgeIdTop == halfNeighbor.length) {
+      halfNeighbor = Arrays.copyOf(halfNeighbor, 2 * halfNeighbor.length);
+      halfIndex = Arrays.copyOf(halfIndex, 2 * halfIndex.length);
+    }
+    return edgeIdTop++;
+  }
+
+  /**
+   * freeEdgeId() puts edge id e on the free list.
+   */
+  private void freeEdgeId(int e) {
+    halfNeighbor[2 * e] = edgeFree;
+    edgeFree = e;
   }
 }
@@ -0,0 +1,60 @@
+/* ArrayQueue.java */
+
+package graphalg;
+
+/**
+ * The ArrayQueue class is the simplest VertexQueue:  an unordered array of
+ * the queued vertices, scanned in full by every poll().  Lowering a key is a
+ * single store.  Over a whole run of Prim's algorithm that is O(n^2) time,
+ * which beats a heap's O(m log n) when the graph is nearly complete.
+ *
+ * Running time: offer() O(1), poll() O(size).
+ */
+class ArrayQueue implements VertexQueue {
+
+  private final int[] items;
+  private int size;
+  private final int[] key;
+  private final boolean[] queued;
+
+  /**
+   * Construct an empty queue for vertices 0..n-1.
+   */
+  ArrayQueue(int n) {
+    items = new int[n];
+    size = 0;
+    key = new int[n];
+    queued = new boolean[n];
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean offer(int v, int k) {
+    if (!queued[v]) {
+      queued[v] = true;
+      items[size++] = v;
+    } else if (k >= key[v]) {
+      return false;
+    }
+    key[v] = k;
+    return true;
+  }
+
+  public int poll() {
+    int best = 0;
+    int bestKey = key[items[0]];
+    for (int i = 1; i < size; i++) {
+      int k = key[items[i]];
+      if (k < bestKey) {
+        best = i;
+        bestKey = k;
+      }
+    }
+    int min = items[best];
+    items[best] = items[--size];
+    queued[min] = false;
+    return min;
+  }
+}
@@ -0,0 +1,323 @@
+/* Boruvka.java */
+
+package graphalg;
+
+import graph.*;
+import set.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The Boruvka class computes a minimum spanning forest with Boruvka's
+ * algorithm, run in parallel.  Each round:
+ *
+ *  1. finds every component's lightest outgoing edge, scanning the live
+ *     edges in parallel chunks and keeping each component's minimum with a
+ *     compare-and-set on its packed key;
+ *  2. adds those edges to the forest, merging components with DisjointSets;
+ *  3. relabels every live edge's endpoints with their new components and
+ *     drops the edges that became internal, again in parallel chunks.
+ *
+ * The number of components at least halves each round, so there are at most
+ * log |V| rounds.  Edges are compared by the same packed (weight, index) keys
+ * as in Kruskal, so ties are broken the same way on every run and thread
+ * count, and the forest is the one Kruskal.minSpanTree() returns.
+ *
+ * Running time: O(|E| log |V|) work, spread over the pool's threads.
+ */
+public class Boruvka {
+
+  /** Marks a component with no outgoing edge yet this round. */
+  private static final long NO_EDGE = Long.MAX_VALUE;
+
+  /** Smallest number of edges a chunk is given. */
+  private static final int MIN_CHUNK = 1 << 12;
+
+  /** Chunks per thread, so that uneven chunks even out. */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final EdgeList edges;
+  private final ForkJoinPool pool;
+  private final int chunks;
+
+  /** Live edges:  original index, and current component of each end. */
+  private final int[] live;
+  private final int[] lu;
+  private final int[] lv;
+  private int liveCount;
+
+  /** Lightest outgoing key of each component, by component label. */
+  private final AtomicLongArray best;
+
+  /** New label of each component after a round's merges. */
+  private final int[] rep;
+
+  /** Kept edges per chunk, for compacting after the filter. */
+  private final int[] kept;
+
+  private Boruvka(EdgeList edges, ForkJoinPool pool) {
+    this.edges = edges;
+    this.pool = pool;
+    chunks = CHUNKS_PER_THREAD * pool.getParallelism();
+
+    int m = edges.m;
+    live = new int[m];
+    lu = new int[m];
+    lv = new int[m];
+    liveCount = 0;
+    for (int e = 0; e < m; e++) {
+      // A self-edge is never in a spanning forest.
+      if (edges.us[e] != edges.vs[e]) {
+        live[liveCount] = e;
+        lu[liveCount] = edges.us[e];
+        lv[liveCount] = edges.vs[e];
+        liveCount++;
+      }
+    }
+
+    best = new AtomicLongArray(edges.n);
+    for (int c = 0; c < edges.n; c++) {
+      best.set(c, NO_EDGE);
+    }
+    rep = new int[edges.n];
+    kept = new int[chunks];
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g, computed in the common ForkJoinPool.  The original
+   * WUGraph g is NOT changed.
+   *
+   * Running time: O(|V| + |E| log |V|) work.
+   */
+  public static WUGraph minSpanTree(WUGraph g) {
+    return forest(EdgeList.of(g), 0).toGraph();
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g, computed by "parallelism" threads.
+   */
+  public static WUGraph minSpanTree(WUGraph g, int parallelism) {
+    return forest(EdgeList.of(g), parallelism).toGraph();
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the frozen graph g, computed in the common ForkJoinPool.
+   */
+  public static WUGraph minSpanTree(CsrGraph g) {
+    return forest(EdgeList.of(g), 0).toGraph();
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the frozen graph g, computed by "parallelism" threads.
+   */
+  public static WUGraph minSpanTree(CsrGraph g, int parallelism) {
+    return forest(EdgeList.of(g), parallelism).toGraph();
+  }
+
+  /**
+   * forest() runs the rounds over edges and returns the minimum spanning
+   * forest.  A parallelism of 0 means the common ForkJoinPool; otherwise a
+   * pool of that many threads is started for this call alone.
+   */
+  static MstResult forest(EdgeList edges, int parallelism) {
+    int[] tree = new int[Math.min(edges.m, edges.n)];
+    int treeSize;
+    if (parallelism == 0) {
+      treeSize = new Boruvka(edges, ForkJoinPool.commonPool()).run(tree);
+    } else {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        treeSize = new Boruvka(edges, pool).run(tree);
+      } finally {
+        pool.shutdown();
+      }
+    }
+    return edges.forest(tree, treeSize);
+  }
+
+  /**
+   * run() performs rounds until no edge joins two components, writing the
+   * indices of the forest's edges into tree.  Returns the forest's size.
+   */
+  private int run(int[] tree) {
+    int n = edges.n;
+    DisjointSets sets = new DisjointSets(n);
+    int treeSize = 0;
+
+    // Components that may still have outgoing edges.
+    int[] comps = new int[n];
+    for (int c = 0; c < n; c++) {
+      comps[c] = c;
+    }
+    int compCount = n;
+
+    while (liveCount > 0) {
+      // 1. Lightest outgoing edge of every component.
+      forEachChunk(liveCount, new ChunkBody() {
+        public void run(int lo, int hi, int chunk) {
+          findLightest(lo, hi);
+        }
+      });
+
+      // 2. Add each component's edge, unless another component already
+      //    added it.  Keys are distinct, so the chosen edges form a forest.
+      //    A component with no outgoing edge will never get one, so only
+      //    components that found an edge are kept.
+      int next = 0;
+      for (int i = 0; i < compCount; i++) {
+        int c = comps[i];
+        long key = best.get(c);
+        if (key != NO_EDGE) {
+          int e = (int) key;
+          int rootU = sets.find(edges.us[e]);
+          int rootV = sets.find(edges.vs[e]);
+          if (rootU != rootV) {
+            tree[treeSize++] = e;
+            sets.union(rootU, rootV);
+          }
+          comps[next++] = c;
+        }
+      }
+      compCount = next;
+
+      // 3. Relabel components, then drop edges that became internal.
+      next = 0;
+      for (int i = 0; i < compCount; i++) {
+        int c = comps[i];
+        int r = sets.find(c);
+        rep[c] = r;
+        best.set(c, NO_EDGE);
+        if (r == c) {
+          comps[next++] = c;
+        }
+      }
+      compCount = next;
+      filterLive();
+    }
+
+    return treeSize;
+  }
+
+  /**
+   * findLightest() lowers best[c] to the key of every live edge in
+   * [lo, hi) that leaves component c.
+   */
+  private void findLightest(int lo, int hi) {
+    int[] ws = edges.ws;
+    for (int i = lo; i < hi; i++) {
+      int e = live[i];
+      long key = EdgeList.key(ws[e], e);
+      lower(lu[i], key);
+      lower(lv[i], key);
+    }
+  }
+
+  /**
+   * lower() sets best[c] to key if key is smaller.
+   */
+  private void lower(int c, long key) {
+    long cur = best.get(c);
+    while (key < cur) {
+      if (best.compareAndSet(c, cur, key)) {
+        return;
+      }
+      cur = best.get(c);
+    }
+  }
+
+  /**
+   * filterLive() relabels the live edges' endpoints through rep and drops
+   * edges whose endpoints now share a component.  Each chunk compacts its
+   * own range in parallel; the chunks are then moved together.
+   */
+  private void filterLive() {
+    final int size = chunkSize(liveCount);
+    int used = forEachChunk(liveCount, new ChunkBody() {
+      public void run(int lo, int hi, int chunk) {
+        int k = lo;
+        for (int i = lo; i < hi; i++) {
+          int cu = rep[lu[i]];
+          int cv = rep[lv[i]];
+          if (cu != cv) {
+            live[k] = live[i];
+            lu[k] = cu;
+            lv[k] = cv;
+            k++;
+          }
+        }
+        kept[chunk] = k - lo;
+      }
+    });
+
+    int count = kept[0];
+    for (int c = 1; c < used; c++) {
+      int from = c * size;
+      System.arraycopy(live, from, live, count, kept[c]);
+      System.arraycopy(lu, from, lu, count, kept[c]);
+      System.arraycopy(lv, from, lv, count, kept[c]);
+      count += kept[c];
+    }
+    liveCount = count;
+  }
+
+  /** The work done on one chunk [lo, hi) of the live edges. */
+  private interface ChunkBody {
+    void run(int lo, int hi, int chunk);
+  }
+
+  private int chunkSize(int count) {
+    return Math.max(MIN_CHUNK, (count + chunks - 1) / chunks);
+  }
+
+  /**
+   * forEachChunk() splits [0, count) into chunks of chunkSize(count) and
+   * runs body on all of them in the pool.  Returns the number of chunks.
+   */
+  private int forEachChunk(int count, ChunkBody body) {
+    int size = chunkSize(count);
+    int used = (count + size - 1) / size;
+    if (used <= 1) {
+      body.run(0, count, 0);
+      return 1;
+    }
+    pool.invoke(new ChunkTask(body, 0, used, size, count));
+    return used;
+  }
+
+  /**
+   * A ChunkTask runs body on chunks [first, last), halving the range into
+   * forked subtasks until a single chunk is left.
+   */
+  @SuppressWarnings("serial")       // tasks are never serialized
+  private static class ChunkTask extends RecursiveAction {
+    private final ChunkBody body;
+    private final int first;
+    private final int last;
+    private final int size;
+    private final int count;
+
+    ChunkTask(ChunkBody body, int first, int last, int size, int count) {
+      this.body = body;
+      this.first = first;
+      this.last = last;
+      this.size = size;
+      this.count = count;
+    }
+
+    protected void compute() {
+      if (last - first == 1) {
+        int lo = first * size;
+        body.run(lo, Math.min(lo + size, count), first);
+        return;
+      }
+      int mid = (first + last) >>> 1;
+      invokeAll(new ChunkTask(body, first, mid, size, count),
+                new ChunkTask(body, mid, last, size, count));
+    }
+  }
+}
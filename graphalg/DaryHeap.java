@@ -0,0 +1,115 @@
+/* DaryHeap.java */
+
+package graphalg;
+
+/**
+ * The DaryHeap class is an indexed d-ary min-heap of vertices.  A position
+ * table maps each vertex to its slot in the heap, so a key can be lowered in
+ * place.  With d = 2 it is the usual binary heap; a larger d makes the heap
+ * shallower, so decrease-key (which sifts up) is cheaper and poll() (which
+ * sifts down, comparing d children per level) is dearer.
+ *
+ * Running time: offer() O(log n / log d), poll() O(d log n / log d).
+ */
+class DaryHeap implements VertexQueue {
+
+  private final int d;
+
+  /** Vertices in heap order; heap[0] has the smallest key. */
+  private final int[] heap;
+  private int size;
+
+  /** Slot of each vertex in heap, or -1 if it is not queued. */
+  private final int[] pos;
+
+  /** Key of each queued vertex. */
+  private final int[] key;
+
+  /**
+   * Construct an empty heap of arity d for vertices 0..n-1.
+   */
+  DaryHeap(int n, int d) {
+    this.d = d;
+    heap = new int[n];
+    size = 0;
+    pos = new int[n];
+    for (int v = 0; v < n; v++) {
+      pos[v] = -1;
+    }
+    key = new int[n];
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean offer(int v, int k) {
+    int i = pos[v];
+    if (i < 0) {
+      i = size++;
+    } else if (k >= key[v]) {
+      return false;
+    }
+    key[v] = k;
+    siftUp(v, i);
+    return true;
+  }
+
+  public int poll() {
+    int min = heap[0];
+    pos[min] = -1;
+    size--;
+    if (size > 0) {
+      siftDown(heap[size], 0);
+    }
+    return min;
+  }
+
+  /**
+   * siftUp() places v at slot i or above, moving larger parents down.
+   */
+  private void siftUp(int v, int i) {
+    int k = key[v];
+    while (i > 0) {
+      int parent = (i - 1) / d;
+      int p = heap[parent];
+      if (key[p] <= k) {
+        break;
+      }
+      heap[i] = p;
+      pos[p] = i;
+      i = parent;
+    }
+    heap[i] = v;
+    pos[v] = i;
+  }
+
+  /**
+   * siftDown() places v at slot i or below, moving smaller children up.
+   */
+  private void siftDown(int v, int i) {
+    int k = key[v];
+    while (true) {
+      int first = d * i + 1;
+      if (first >= size) {
+        break;
+      }
+      int last = Math.min(first + d, size);
+      int best = first;
+      for (int c = first + 1; c < last; c++) {
+        if (key[heap[c]] < key[heap[best]]) {
+          best = c;
+        }
+      }
+      int b = heap[best];
+      if (key[b] >= k) {
+        break;
+      }
+      heap[i] = b;
+      pos[b] = i;
+      i = best;
+    }
+    heap[i] = v;
+    pos[v] = i;
+  }
+}
@@ -0,0 +1,118 @@
+/* EdgeList.java */
+
+package graphalg;
+
+import graph.*;
+
+/**
+ * An EdgeList is the primitive form of a graph that the MST engines work on.
+ * Vertices are numbered 0..n-1 by their positions in "vertices", and edge i
+ * runs between us[i] and vs[i] with weight ws[i].  Every edge appears once.
+ *
+ * An edge's sort key packs its weight into the high 32 bits and its index
+ * into the low 32 bits.  Keys are distinct, so they order the edges totally,
+ * and every engine that follows that order picks the same tree.
+ */
+class EdgeList {
+
+  Object[] vertices;
+  int n;
+  int m;
+  int[] us;
+  int[] vs;
+  int[] ws;
+
+  EdgeList(Object[] vertices, int[] us, int[] vs, int[] ws, int m) {
+    this.vertices = vertices;
+    this.n = vertices.length;
+    this.m = m;
+    this.us = us;
+    this.vs = vs;
+    this.ws = ws;
+  }
+
+  /**
+   * of() returns the edges of g, with vertices numbered in the order of
+   * g.getVertices().
+   *
+   * Running time: O(|V| + |E|).
+   */
+  static EdgeList of(WUGraph g) {
+    Object[] vertices = g.getVertices();
+    int m = g.edgeCount();
+    int[] us = new int[m];
+    int[] vs = new int[m];
+    int[] ws = new int[m];
+    g.getEdges(us, vs, ws);
+    return new EdgeList(vertices, us, vs, ws, m);
+  }
+
+  /**
+   * of() returns the edges of the snapshot g, with vertices numbered as in
+   * g.  Each regular edge is stored twice in g; the copy with i <= j is kept.
+   * Edges come out in the order WUGraph.getEdges() gives them for the graph
+   * g was frozen from, so both forms of a graph number edges alike.
+   *
+   * Running time: O(|V| + |E|).
+   */
+  static EdgeList of(CsrGraph g) {
+    Object[] vertices = g.getVertices();
+    int n = vertices.length;
+    int m = g.edgeCount();
+    int[] us = new int[m];
+    int[] vs = new int[m];
+    int[] ws = new int[m];
+    int k = 0;
+    for (int i = 0; i < n; i++) {
+      int end = g.endSlot(i);
+      for (int s = g.firstSlot(i); s < end; s++) {
+        int j = g.target(s);
+        if (i <= j) {
+          us[k] = i;
+          vs[k] = j;
+          ws[k] = g.weight(s);
+          k++;
+        }
+      }
+    }
+    return new EdgeList(vertices, us, vs, ws, k);
+  }
+
+  /**
+   * key() returns the sort key of the edge with the given weight and index:
+   * the weight in the high half and the index in the low half.  Indices are
+   * distinct, so no two edges have equal keys, and keys order edges by
+   * weight, ties broken by index.
+   */
+  static long key(int weight, int index) {
+    return ((long) weight << 32) | index;
+  }
+
+  /**
+   * keys() returns the sort keys of all edges, in edge index order.
+   */
+  long[] keys() {
+    long[] keys = new long[m];
+    for (int i = 0; i < m; i++) {
+      keys[i] = key(ws[i], i);
+    }
+    return keys;
+  }
+
+  /**
+   * forest() returns the forest made of the edges whose indices are
+   * tree[0..treeSize-1], over every vertex.
+   */
+  MstResult forest(int[] tree, int treeSize) {
+    int[] tu = new int[treeSize];
+    int[] tv = new int[treeSize];
+    int[] tw = new int[treeSize];
+    for (int i = 0; i < treeSize; i++) {
+      int e = tree[i];
+      tu[i] = us[e];
+      tv[i] = vs[e];
+      tw[i] = ws[e];
+    }
+    return new MstResult(vertices, tu, tv, tw, treeSize);
+  }
+}
@@ -0,0 +1,163 @@
+/* FilterKruskal.java */
+
+package graphalg;
+
+import graph.*;
+import set.*;
+import java.util.Random;
+
+/**
+ * The FilterKruskal class computes a minimum spanning tree with the
+ * Filter-Kruskal algorithm.  Rather than sorting every edge up front, it
+ * partitions the edges around a random pivot key, solves the light half
+ * first, and then drops every heavy edge whose endpoints the light half has
+ * already connected before it recurses into what is left.  Small parts are
+ * sorted and scanned as in plain Kruskal.
+ *
+ * On graphs with many more edges than vertices, most heavy edges are
+ * filtered out in linear passes and never sorted at all.  Edges are ordered
+ * by the same packed keys as in Kruskal, so the tree is the same one
+ * Kruskal.minSpanTree() returns.
+ */
+public class FilterKruskal {
+
+  /** Parts of at most this many edges are sorted and scanned directly. */
+  private static final int BASE_SIZE = 1024;
+
+  private final int[] us;
+  private final int[] vs;
+  private final long[] keys;
+  private final long[] scratch;
+  private final DisjointSets sets;
+  private final Random random;
+
+  /** Indices of the tree edges chosen so far. */
+  private final int[] tree;
+  private int treeSize;
+
+  /** Number of tree edges after which every other edge would be a cycle. */
+  private final int treeLimit;
+
+  private FilterKruskal(EdgeList edges) {
+    us = edges.us;
+    vs = edges.vs;
+    keys = edges.keys();
+    scratch = new long[edges.m];
+    sets = new DisjointSets(edges.n);
+    random = new Random(edges.m);
+    tree = new int[Math.min(edges.m, edges.n)];
+    treeSize = 0;
+    treeLimit = edges.n - 1;
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g.  The original WUGraph g is NOT changed.
+   *
+   * Running time: O(|V| + |E| log |E|) worst case; O(|E| + |V| log |V| log
+   * (|E| / |V|)) expected on random weights.
+   */
+  public static WUGraph minSpanTree(WUGraph g) {
+    return forest(EdgeList.of(g)).toGraph();
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the frozen graph g.
+   *
+   * Running time: as for the WUGraph version.
+   */
+  public static WUGraph minSpanTree(CsrGraph g) {
+    return forest(EdgeList.of(g)).toGraph();
+  }
+
+  /**
+   * forest() runs Filter-Kruskal over edges and returns the minimum spanning
+   * forest.
+   */
+  static MstResult forest(EdgeList edges) {
+    FilterKruskal fk = new FilterKruskal(edges);
+    fk.filterKruskal(0, edges.m);
+    return edges.forest(fk.tree, fk.treeSize);
+  }
+
+  /**
+   * filterKruskal() adds to the tree, in key order, every edge of
+   * keys[lo..hi-1] that joins two components.
+   */
+  private void filterKruskal(int lo, int hi) {
+    if (treeSize == treeLimit || lo >= hi) {
+      return;
+    }
+    if (hi - lo <= BASE_SIZE) {
+      KeySort.mergeSort(keys, lo, hi - 1, scratch);
+      for (int i = lo; i < hi && treeSize < treeLimit; i++) {
+        consider(keys[i]);
+      }
+      return;
+    }
+
+    int p = partition(lo, hi);
+    filterKruskal(lo, p);
+    if (treeSize == treeLimit) {
+      return;
+    }
+    consider(keys[p]);
+    int end = filter(p + 1, hi);
+    filterKruskal(p + 1, end);
+  }
+
+  /**
+   * consider() adds the edge with key "key" to the tree if it joins two
+   * components.
+   */
+  private void consider(long key) {
+    int e = (int) key;
+    int rootU = sets.find(us[e]);
+    int rootV = sets.find(vs[e]);
+    if (rootU != rootV) {
+      tree[treeSize++] = e;
+      sets.union(rootU, rootV);
+    }
+  }
+
+  /**
+   * partition() moves a random pivot key of keys[lo..hi-1] to its sorted
+   * position p, with smaller keys before it and larger keys after it, and
+   * returns p.
+   */
+  private int partition(int lo, int hi) {
+    swap(lo + random.nextInt(hi - lo), hi - 1);
+    long pivot = keys[hi - 1];
+    int i = lo;
+    for (int j = lo; j < hi - 1; j++) {
+      if (keys[j] < pivot) {
+        swap(i++, j);
+      }
+    }
+    swap(i, hi - 1);
+    return i;
+  }
+
+  /**
+   * filter() moves the edges of keys[lo..hi-1] whose endpoints are still in
+   * different components to the front of that range, and returns the end of
+   * the kept edges.
+   */
+  private int filter(int lo, int hi) {
+    int k = lo;
+    for (int i = lo; i < hi; i++) {
+      int e = (int) keys[i];
+      if (sets.find(us[e]) != sets.find(vs[e])) {
+        keys[k++] = keys[i];
+      }
+    }
+    return k;
+  }
+
+  private void swap(int i, int j) {
+    long t = keys[i];
+    keys[i] = keys[j];
+    keys[j] = t;
+  }
+}
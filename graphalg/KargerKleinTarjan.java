@@ -0,0 +1,541 @@
+/* KargerKleinTarjan.java */
+
+package graphalg;
+
+import graph.*;
+import set.*;
+import java.util.Random;
+
+/**
+ * The KargerKleinTarjan class computes a minimum spanning forest with the
+ * randomized algorithm of Karger, Klein and Tarjan, which runs in expected
+ * linear time.  On a graph G:
+ *
+ *  1. Two Boruvka steps add every vertex's lightest edge to the forest and
+ *     contract it, which at least quarters the number of vertices.
+ *  2. Each remaining edge goes into a subgraph H with probability 1/2, and
+ *     the minimum spanning forest F of H is found recursively.
+ *  3. Every edge heavier than all the edges on the path that F already has
+ *     between its endpoints ("F-heavy") cannot be in the MST and is dropped.
+ *     On average only 2|V| edges survive.
+ *  4. The MST of the surviving edges is found recursively.
+ *
+ * Step 3 is answered for all edges at once by Tarjan's offline path maxima:
+ * one depth-first pass over F, with a path-compressed union-find that keeps
+ * the heaviest edge on each compressed path.  Small graphs are finished with
+ * plain Kruskal.
+ *
+ * Edges are ordered by the same packed keys as in Kruskal, so the tree is the
+ * one Kruskal.minSpanTree() returns, whatever the random choices.
+ *
+ * Running time: O(|V| + |E|) expected; the path maxima add a factor that
+ * grows like log(|V|) / log(|E| / |V|) at worst, which is small in practice.
+ */
+public class KargerKleinTarjan {
+
+  /** Graphs with at most this many edges are finished with Kruskal. */
+  private static final int BASE_SIZE = 1024;
+
+  private final Random random;
+
+  private KargerKleinTarjan(long seed) {
+    random = new Random(seed);
+  }
+
+  /**
+   * A Level is the graph one recursive call works on:  n vertices 0..n-1 and
+   * m edges (u[i], v[i]) with packed keys key[i].  The arrays may be longer
+   * than m.  Calls relabel and compact their Level in place.
+   */
+  private static class Level {
+    int n;
+    int m;
+    int[] u;
+    int[] v;
+    long[] key;
+
+    Level(int n, int m) {
+      this.n = n;
+      this.m = m;
+      u = new int[m];
+      v = new int[m];
+      key = new long[m];
+    }
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g.  The original WUGraph g is NOT changed.
+   *
+   * Running time: O(|V| + |E|) expected.
+   */
+  public static WUGraph minSpanTree(WUGraph g) {
+    return forest(EdgeList.of(g)).toGraph();
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the frozen graph g.
+   *
+   * Running time: O(|V| + |E|) expected.
+   */
+  public static WUGraph minSpanTree(CsrGraph g) {
+    return forest(EdgeList.of(g)).toGraph();
+  }
+
+  /**
+   * forest() runs the algorithm over edges and returns the minimum spanning
+   * forest.  The random choices are seeded with the edge count, so a graph
+   * always gets the same run.
+   */
+  static MstResult forest(EdgeList edges) {
+    return forest(edges, edges.m);
+  }
+
+  /**
+   * forest() runs the algorithm over edges with the random choices seeded
+   * by "seed".  The forest does not depend on the seed; only the work does.
+   */
+  static MstResult forest(EdgeList edges, long seed) {
+    Level g = new Level(edges.n, edges.m);
+    System.arraycopy(edges.us, 0, g.u, 0, edges.m);
+    System.arraycopy(edges.vs, 0, g.v, 0, edges.m);
+    g.key = edges.keys();
+    int[] tree = new int[Math.min(edges.m, edges.n)];
+    int treeSize = new KargerKleinTarjan(seed).forest(g, tree);
+    return edges.forest(tree, treeSize);
+  }
+
+  /**
+   * forest() writes the indices of g's minimum spanning forest edges, as
+   * they were numbered on entry, into out and returns how many there are.
+   * out must have room for min(g.m, g.n) entries.  g is used up.
+   */
+  private int forest(Level g, int[] out) {
+    if (g.m <= BASE_SIZE) {
+      return kruskal(g, out);
+    }
+
+    // orig[i] is the entry index of the edge now at position i.
+    int[] orig = new int[g.m];
+    for (int i = 0; i < g.m; i++) {
+      orig[i] = i;
+    }
+
+    // 1. Two Boruvka steps.
+    int count = boruvkaStep(g, orig, out, 0);
+    if (g.m > 0) {
+      count = boruvkaStep(g, orig, out, count);
+    }
+    if (g.m == 0) {
+      return count;
+    }
+    dropIsolated(g);
+
+    // 2. Sample H and find its forest F.  hOrig maps H's edges to g's.
+    Level h = new Level(g.n, g.m);
+    int[] hOrig = new int[g.m];
+    int k = 0;
+    long bits = 0;
+    for (int i = 0; i < g.m; i++) {
+      // One random long gives the coin flips for 64 edges.
+      if ((i & 63) == 0) {
+        bits = random.nextLong();
+      }
+      if ((bits >>> (i & 63) & 1) != 0) {
+        h.u[k] = g.u[i];
+        h.v[k] = g.v[i];
+        h.key[k] = g.key[i];
+        hOrig[k] = i;
+        k++;
+      }
+    }
+    h.m = k;
+    int[] f = new int[Math.min(h.m, h.n)];
+    int fSize = forest(h, f);
+    int[] fu = new int[fSize];
+    int[] fv = new int[fSize];
+    long[] fKey = new long[fSize];
+    for (int i = 0; i < fSize; i++) {
+      int e = hOrig[f[i]];
+      fu[i] = g.u[e];
+      fv[i] = g.v[e];
+      fKey[i] = g.key[e];
+    }
+
+    // 3. Drop the F-heavy edges.
+    dropHeavy(g, orig, fu, fv, fKey, fSize);
+
+    // 4. The forest of what is left.
+    int[] rest = new int[Math.min(g.m, g.n)];
+    int restSize = forest(g, rest);
+    for (int i = 0; i < restSize; i++) {
+      out[count++] = orig[rest[i]];
+    }
+    return count;
+  }
+
+  /**
+   * kruskal() is forest() for small graphs.  Every call keeps its edges in
+   * the order they had at the top level, so sorting by weight and then by
+   * position here orders them exactly as their packed keys do.
+   */
+  private static int kruskal(Level g, int[] out) {
+    long[] keys = new long[g.m];
+    for (int i = 0; i < g.m; i++) {
+      keys[i] = (g.key[i] & 0xFFFFFFFF00000000L) | i;
+    }
+    KeySort.mergeSort(keys, g.m, new long[g.m]);
+
+    DisjointSets sets = new DisjointSets(g.n);
+    int count = 0;
+    for (int i = 0; i < g.m && count < g.n - 1; i++) {
+      int e = (int) keys[i];
+      int rootU = sets.find(g.u[e]);
+      int rootV = sets.find(g.v[e]);
+      if (rootU != rootV) {
+        out[count++] = e;
+        sets.union(rootU, rootV);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * boruvkaStep() adds every vertex's lightest edge to the forest, writing
+   * its entry index (through orig) into out[count...], then contracts those
+   * edges:  vertices are renumbered by component, and edges inside a
+   * component are removed.  Returns the new count.
+   */
+  private static int boruvkaStep(Level g, int[] orig, int[] out, int count) {
+    int n = g.n;
+    int[] u = g.u;
+    int[] v = g.v;
+    long[] key = g.key;
+
+    int[] best = new int[n];
+    for (int c = 0; c < n; c++) {
+      best[c] = -1;
+    }
+    for (int e = 0; e < g.m; e++) {
+      int a = u[e];
+      int b = v[e];
+      if (a != b) {
+        if (best[a] < 0 || key[e] < key[best[a]]) {
+          best[a] = e;
+        }
+        if (best[b] < 0 || key[e] < key[best[b]]) {
+          best[b] = e;
+        }
+      }
+    }
+
+    DisjointSets sets = new DisjointSets(n);
+    for (int c = 0; c < n; c++) {
+      int e = best[c];
+      if (e >= 0) {
+        int rootU = sets.find(u[e]);
+        int rootV = sets.find(v[e]);
+        // Both ends may pick the same edge; it is added once.
+        if (rootU != rootV) {
+          out[count++] = orig[e];
+          sets.union(rootU, rootV);
+        }
+      }
+    }
+
+    // Number the components 0..n'-1, reusing best[] for the labels.
+    int[] label = best;
+    int[] id = new int[n];
+    for (int c = 0; c < n; c++) {
+      id[c] = -1;
+    }
+    int newN = 0;
+    for (int c = 0; c < n; c++) {
+      int r = sets.find(c);
+      if (id[r] < 0) {
+        id[r] = newN++;
+      }
+      label[c] = id[r];
+    }
+
+    int k = 0;
+    for (int e = 0; e < g.m; e++) {
+      int a = label[u[e]];
+      int b = label[v[e]];
+      if (a != b) {
+        u[k] = a;
+        v[k] = b;
+        key[k] = key[e];
+        orig[k] = orig[e];
+        k++;
+      }
+    }
+    g.n = newN;
+    g.m = k;
+    return count;
+  }
+
+  /**
+   * dropIsolated() renumbers g's vertices so that only those with an edge
+   * remain.  They play no part in the rest of the forest, and without this
+   * the vertex count would not shrink with the edge count.
+   */
+  private static void dropIsolated(Level g) {
+    int[] id = new int[g.n];
+    for (int c = 0; c < g.n; c++) {
+      id[c] = -1;
+    }
+    int newN = 0;
+    for (int e = 0; e < g.m; e++) {
+      if (id[g.u[e]] < 0) {
+        id[g.u[e]] = newN++;
+      }
+      if (id[g.v[e]] < 0) {
+        id[g.v[e]] = newN++;
+      }
+      g.u[e] = id[g.u[e]];
+      g.v[e] = id[g.v[e]];
+    }
+    g.n = newN;
+  }
+
+  /**
+   * dropHeavy() removes from g (and orig, in step) every edge that is
+   * heavier than each edge on the path between its endpoints in the forest
+   * F, given by its fSize edges (fu[i], fv[i]) with keys fKey[i].  Edges
+   * whose endpoints F does not connect, and F's own edges, are kept.
+   */
+  private static void dropHeavy(Level g, int[] orig, int[] fu, int[] fv,
+                                long[] fKey, int fSize) {
+    PathMaxima pm = new PathMaxima(g, fu, fv, fKey, fSize);
+    pm.run();
+    int k = 0;
+    for (int e = 0; e < g.m; e++) {
+      if (pm.tree[g.u[e]] != pm.tree[g.v[e]] || g.key[e] <= pm.max[e]) {
+        g.u[k] = g.u[e];
+        g.v[k] = g.v[e];
+        g.key[k] = g.key[e];
+        orig[k] = orig[e];
+        k++;
+      }
+    }
+    g.m = k;
+  }
+
+  /**
+   * A PathMaxima finds, for every edge (u, v) of a graph, the heaviest key
+   * on the path from u to v in a forest F over the same vertices, with
+   * Tarjan's offline algorithm.
+   *
+   * F is walked depth first.  When a vertex x finishes, it is linked to its
+   * parent in a union-find whose sets are always a finished subtree hung
+   * from the lowest unfinished vertex above it.  Each link is labeled with
+   * the key of its F edge, and path compression keeps the heaviest label on
+   * every path it shortcuts, so eval(y) is the heaviest key between y and
+   * the root of y's set.
+   *
+   * For an edge (x, y) whose end y finished before x: the root r of y's set
+   * is the lowest common ancestor of x and y, and eval(y) covers the y-r
+   * half of the path.  The x-r half is complete once r finishes, so it is
+   * queued on r and evaluated then.
+   */
+  private static class PathMaxima {
+    private final int n;
+
+    /** F as adjacency lists:  vertex x's entries are head[x]..head[x+1]-1. */
+    private final int[] head;
+    private final int[] adj;
+    private final long[] adjKey;
+
+    /**
+     * Edges at each vertex, and their other ends:  vertex x's are
+     * qHead[x]..qHead[x+1]-1.
+     */
+    private final int[] qHead;
+    private final int[] qEdge;
+    private final int[] qOther;
+
+    /** F tree (root vertex) of each vertex, or -1 before it is reached. */
+    final int[] tree;
+    /** Heaviest F key between each edge's endpoints found so far. */
+    final long[] max;
+
+    private final int[] parent;
+    private final long[] parentKey;
+    private final boolean[] finished;
+
+    /** The union-find:  link parent and heaviest key up to it. */
+    private final int[] link;
+    private final long[] linkMax;
+    private final int[] path;
+
+    /** Halves queued on each vertex:  a list through dNext from dHead[r]. */
+    private final int[] dHead;
+    private final int[] dNext;
+    private final int[] dVertex;
+    private final int[] dEdge;
+    private int dCount;
+
+    PathMaxima(Level g, int[] fu, int[] fv, long[] fKey, int fSize) {
+      n = g.n;
+
+      head = new int[n + 1];
+      for (int i = 0; i < fSize; i++) {
+        head[fu[i] + 1]++;
+        head[fv[i] + 1]++;
+      }
+      for (int x = 0; x < n; x++) {
+        head[x + 1] += head[x];
+      }
+      adj = new int[2 * fSize];
+      adjKey = new long[2 * fSize];
+      int[] fill = new int[n];
+      for (int i = 0; i < fSize; i++) {
+        int s = head[fu[i]] + fill[fu[i]]++;
+        adj[s] = fv[i];
+        adjKey[s] = fKey[i];
+        s = head[fv[i]] + fill[fv[i]]++;
+        adj[s] = fu[i];
+        adjKey[s] = fKey[i];
+      }
+
+      int m = g.m;
+      qHead = new int[n + 1];
+      for (int e = 0; e < m; e++) {
+        qHead[g.u[e] + 1]++;
+        qHead[g.v[e] + 1]++;
+      }
+      for (int x = 0; x < n; x++) {
+        qHead[x + 1] += qHead[x];
+        fill[x] = 0;
+      }
+      qEdge = new int[2 * m];
+      qOther = new int[2 * m];
+      for (int e = 0; e < m; e++) {
+        int a = g.u[e];
+        int b = g.v[e];
+        int s = qHead[a] + fill[a]++;
+        qEdge[s] = e;
+        qOther[s] = b;
+        s = qHead[b] + fill[b]++;
+        qEdge[s] = e;
+        qOther[s] = a;
+      }
+
+      tree = new int[n];
+      max = new long[m];
+      for (int e = 0; e < m; e++) {
+        max[e] = Long.MIN_VALUE;
+      }
+      parent = new int[n];
+      parentKey = new long[n];
+      finished = new boolean[n];
+      link = new int[n];
+      linkMax = new long[n];
+      path = new int[n];
+      dHead = new int[n];
+      for (int x = 0; x < n; x++) {
+        tree[x] = -1;
+        link[x] = x;
+        dHead[x] = -1;
+      }
+      // At most one half of each edge is queued.
+      dNext = new int[m];
+      dVertex = new int[m];
+      dEdge = new int[m];
+      dCount = 0;
+    }
+
+    /**
+     * run() walks every tree of F, filling in tree[] and max[].
+     */
+    void run() {
+      int[] stack = new int[n];
+      int[] next = new int[n];
+      for (int root = 0; root < n; root++) {
+        if (tree[root] >= 0) {
+          continue;
+        }
+        tree[root] = root;
+        parent[root] = -1;
+        next[root] = head[root];
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+          int x = stack[top - 1];
+          if (next[x] < head[x + 1]) {
+            int s = next[x]++;
+            int y = adj[s];
+            if (tree[y] < 0) {
+              tree[y] = root;
+              parent[y] = x;
+              parentKey[y] = adjKey[s];
+              next[y] = head[y];
+              stack[top++] = y;
+            }
+          } else {
+            finish(x);
+            top--;
+          }
+        }
+      }
+    }
+
+    /**
+     * finish() answers the halves queued on x and the edges at x whose other
+     * end has finished, then links x to its parent.
+     */
+    private void finish(int x) {
+      for (int d = dHead[x]; d >= 0; d = dNext[d]) {
+        int e = dEdge[d];
+        max[e] = Math.max(max[e], eval(dVertex[d]));
+      }
+
+      int end = qHead[x + 1];
+      for (int q = qHead[x]; q < end; q++) {
+        int y = qOther[q];
+        if (finished[y] && tree[y] == tree[x]) {
+          int e = qEdge[q];
+          max[e] = Math.max(max[e], eval(y));
+          int r = link[y];
+          if (r != x) {
+            dNext[dCount] = dHead[r];
+            dVertex[dCount] = x;
+            dEdge[dCount] = e;
+            dHead[r] = dCount++;
+          }
+        }
+      }
+
+      finished[x] = true;
+      if (parent[x] >= 0) {
+        link[x] = parent[x];
+        linkMax[x] = parentKey[x];
+      }
+    }
+
+    /**
+     * eval() returns the heaviest key between y and the root of its set, and
+     * compresses the path so that link[y] is that root afterward.
+     */
+    private long eval(int y) {
+      if (link[y] == y) {
+        return Long.MIN_VALUE;
+      }
+      int top = 0;
+      int x = y;
+      while (link[link[x]] != link[x]) {
+        path[top++] = x;
+        x = link[x];
+      }
+      int root = link[x];
+      while (top > 0) {
+        int z = path[--top];
+        linkMax[z] = Math.max(linkMax[z], linkMax[link[z]]);
+        link[z] = root;
+      }
+      return linkMax[y];
+    }
+  }
+}
@@ -0,0 +1,342 @@
+/* KeySort.java */
+
+package graphalg;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The KeySort class sorts Kruskal's packed edge keys.  A key holds an edge's
+ * weight in its high 32 bits and the edge's index in its low 32 bits, so no
+ * two keys are equal and every correct sort produces the same order:  by
+ * weight, and by edge index among equal weights.
+ *
+ * Each sort takes a scratch array at least as long as the part being sorted,
+ * so a caller that sorts many times can reuse one buffer.
+ */
+class KeySort {
+
+  /** Number of bits sorted by each radix pass. */
+  private static final int RADIX_BITS = 8;
+  private static final int RADIX = 1 << RADIX_BITS;
+
+  /** Default size below which parallelMergeSort() works sequentially. */
+  static final int PARALLEL_CUTOFF = 1 << 13;
+
+  /**
+   * mergeSort() sorts keys[0..m-1] into increasing order.
+   *
+   * Running time: O(m log m).
+   */
+  static void mergeSort(long[] keys, int m, long[] scratch) {
+    mergeSort(keys, 0, m - 1, scratch);
+  }
+
+  /**
+   * mergeSort() sorts keys[left..right] in place into increasing order,
+   * using scratch[left..right] as working space.
+   */
+  static void mergeSort(long[] keys, int left, int right, long[] scratch) {
+    if (left >= right) {
+      return;
+    }
+
+    int mid = (left + right) >>> 1;
+    mergeSort(keys, left, mid, scratch);
+    mergeSort(keys, mid + 1, right, scratch);
+    merge(keys, left, mid, right, scratch);
+  }
+
+  /**
+   * merge() is the helper for mergeSort().  It copies the two sorted runs
+   * keys[left..mid] and keys[mid+1..right] into scratch and merges them back
+   * into keys.
+   */
+  static void merge(long[] keys, int left, int mid, int right,
+                    long[] scratch) {
+    // Already in order; nothing to merge.
+    if (keys[mid] <= keys[mid + 1]) {
+      return;
+    }
+    System.arraycopy(keys, left, scratch, left, right - left + 1);
+
+    int i = left;
+    int j = mid + 1;
+    int k = left;
+
+    while (i <= mid && j <= right) {
+      if (scratch[i] <= scratch[j]) {
+        keys[k++] = scratch[i++];
+      } else {
+        keys[k++] = scratch[j++];
+      }
+    }
+
+    while (i <= mid) {
+      keys[k++] = scratch[i++];
+    }
+
+    // Any rest of the right run is already in place.
+  }
+
+  /**
+   * parallelMergeSort() sorts keys[0..m-1] into increasing order with a
+   * merge sort whose halves, and whose merges, run as tasks in pool.  Parts
+   * of at most cutoff keys are sorted or merged sequentially.
+   *
+   * Running time: O(m log m) work, O(log^3 m) span.
+   */
+  static void parallelMergeSort(long[] keys, int m, long[] scratch,
+                                ForkJoinPool pool, int cutoff) {
+    if (m < 2) {
+      return;
+    }
+    pool.invoke(new SortTask(keys, 0, m - 1, scratch, Math.max(cutoff, 2)));
+  }
+
+  /**
+   * A SortTask sorts keys[left..right] like mergeSort(), forking the two
+   * halves and then merging them in parallel.
+   */
+  @SuppressWarnings("serial")       // tasks are never serialized
+  private static class SortTask extends RecursiveAction {
+    private final long[] keys;
+    private final int left;
+    private final int right;
+    private final long[] scratch;
+    private final int cutoff;
+
+    SortTask(long[] keys, int left, int right, long[] scratch, int cutoff) {
+      this.keys = keys;
+      this.left = left;
+      this.right = right;
+      this.scratch = scratch;
+      this.cutoff = cutoff;
+    }
+
+    protected void compute() {
+      if (right - left < cutoff) {
+        mergeSort(keys, left, right, scratch);
+        return;
+      }
+      int mid = (left + right) >>> 1;
+      invokeAll(new SortTask(keys, left, mid, scratch, cutoff),
+                new SortTask(keys, mid + 1, right, scratch, cutoff));
+      if (keys[mid] <= keys[mid + 1]) {
+        return;
+      }
+      System.arraycopy(keys, left, scratch, left, right - left + 1);
+      new MergeTask(scratch, left, mid, mid + 1, right, keys, left, cutoff)
+          .compute();
+    }
+  }
+
+  /**
+   * A MergeTask merges the sorted runs src[aLo..aHi] and src[bLo..bHi] into
+   * dst, starting at dst[to].  A large merge is split at the middle key of
+   * the longer run; a binary search finds where that key falls in the other
+   * run, and the two smaller merges on either side of it run in parallel.
+   * Keys are distinct, so the split needs no tie-breaking.
+   */
+  @SuppressWarnings("serial")       // tasks are never serialized
+  private static class MergeTask extends RecursiveAction {
+    private final long[] src;
+    private final int aLo;
+    private final int aHi;
+    private final int bLo;
+    private final int bHi;
+    private final long[] dst;
+    private final int to;
+    private final int cutoff;
+
+    MergeTask(long[] src, int aLo, int aHi, int bLo, int bHi, long[] dst,
+              int to, int cutoff) {
+      this.src = src;
+      this.aLo = aLo;
+      this.aHi = aHi;
+      this.bLo = bLo;
+      this.bHi = bHi;
+      this.dst = dst;
+      this.to = to;
+      this.cutoff = cutoff;
+    }
+
+    protected void compute() {
+      int aLen = aHi - aLo + 1;
+      int bLen = bHi - bLo + 1;
+      if (aLen + bLen <= cutoff) {
+        mergeInto(src, aLo, aHi, bLo, bHi, dst, to);
+        return;
+      }
+      if (aLen < bLen) {
+        new MergeTask(src, bLo, bHi, aLo, aHi, dst, to, cutoff).compute();
+        return;
+      }
+
+      // Split the longer run a at its middle key, and b where that key
+      // would go.
+      int aMid = (aLo + aHi) >>> 1;
+      long pivot = src[aMid];
+      int lo = bLo;
+      int hi = bHi + 1;
+      while (lo < hi) {
+        int m = (lo + hi) >>> 1;
+        if (src[m] < pivot) {
+          lo = m + 1;
+        } else {
+          hi = m;
+        }
+      }
+      int bMid = lo;      // b[bLo..bMid-1] < pivot <= b[bMid..bHi]
+
+      int pos = to + (aMid - aLo) + (bMid - bLo);
+      dst[pos] = pivot;
+      invokeAll(new MergeTask(src, aLo, aMid - 1, bLo, bMid - 1, dst, to,
+                              cutoff),
+                new MergeTask(src, aMid + 1, aHi, bMid, bHi, dst, pos + 1,
+                              cutoff));
+    }
+  }
+
+  /**
+   * mergeInto() merges the sorted runs src[aLo..aHi] and src[bLo..bHi] (either
+   * may be empty) into dst, starting at dst[to].
+   */
+  private static void mergeInto(long[] src, int aLo, int aHi, int bLo,
+                                int bHi, long[] dst, int to) {
+    int i = aLo;
+    int j = bLo;
+    int k = to;
+    while (i <= aHi && j <= bHi) {
+      if (src[i] <= src[j]) {
+        dst[k++] = src[i++];
+      } else {
+        dst[k++] = src[j++];
+      }
+    }
+    while (i <= aHi) {
+      dst[k++] = src[i++];
+    }
+    while (j <= bHi) {
+      dst[k++] = src[j++];
+    }
+  }
+
+  /**
+   * heapify() arranges keys[0..m-1] into a binary min-heap:  every key is at
+   * most both of its children's keys.
+   *
+   * Running time: O(m).
+   */
+  static void heapify(long[] keys, int m) {
+    for (int i = (m >>> 1) - 1; i >= 0; i--) {
+      siftDown(keys, i, keys[i], m);
+    }
+  }
+
+  /**
+   * popMin() removes the smallest key from the min-heap keys[0..size-1] and
+   * returns it.  The heap is then keys[0..size-2].
+   *
+   * Running time: O(log size).
+   */
+  static long popMin(long[] keys, int size) {
+    long min = keys[0];
+    if (size > 1) {
+      siftDown(keys, 0, keys[size - 1], size - 1);
+    }
+    return min;
+  }
+
+  /**
+   * siftDown() places key at position i of the heap keys[0..size-1], moving
+   * smaller children up until key fits.
+   */
+  private static void siftDown(long[] keys, int i, long key, int size) {
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && keys[child + 1] < keys[child]) {
+        child++;
+      }
+      if (key <= keys[child]) {
+        break;
+      }
+      keys[i] = keys[child];
+      i = child;
+    }
+    keys[i] = key;
+  }
+
+  /**
+   * radixSort() sorts keys[0..m-1] into increasing order with least
+   * significant digit first radix sort on the weights, one byte per pass.
+   * The keys must be in increasing order of edge index when it is called
+   * (as Kruskal builds them); each pass is stable, so equal weights stay in
+   * that order.
+   *
+   * Weights are sorted as offsets from the smallest weight, which handles
+   * negative weights and means only as many passes run as the weight range
+   * needs:  none if all weights are equal, one if they span fewer than 256
+   * values.  A pass is also skipped if every key has the same digit.
+   *
+   * Running time: O(m * p), where p <= 4 is the number of passes.
+   */
+  static void radixSort(long[] keys, int m, long[] scratch) {
+    if (m < 2) {
+      return;
+    }
+
+    long min = keys[0] >> 32;
+    long max = min;
+    for (int i = 1; i < m; i++) {
+      long w = keys[i] >> 32;
+      if (w < min) {
+        min = w;
+      } else if (w > max) {
+        max = w;
+      }
+    }
+    long range = max - min;
+
+    int[] count = new int[RADIX + 1];
+    long[] src = keys;
+    long[] dst = scratch;
+    for (int shift = 0; (range >>> shift) != 0; shift += RADIX_BITS) {
+      for (int d = 0; d <= RADIX; d++) {
+        count[d] = 0;
+      }
+      for (int i = 0; i < m; i++) {
+        count[digit(src[i], min, shift) + 1]++;
+      }
+      if (count[digit(src[0], min, shift) + 1] == m) {
+        continue;
+      }
+
+      // count[d] becomes the first output position for digit d.
+      for (int d = 0; d < RADIX; d++) {
+        count[d + 1] += count[d];
+      }
+      for (int i = 0; i < m; i++) {
+        long key = src[i];
+        dst[count[digit(key, min, shift)]++] = key;
+      }
+
+      long[] t = src;
+      src = dst;
+      dst = t;
+    }
+
+    if (src != keys) {
+      System.arraycopy(src, 0, keys, 0, m);
+    }
+  }
+
+  /**
+   * digit() returns the radix digit of key's weight, taken as an offset from
+   * min, starting at bit shift.
+   */
+  private static int digit(long key, long min, int shift) {
+    return (int) (((key >> 32) - min) >>> shift) & (RADIX - 1);
+  }
+}
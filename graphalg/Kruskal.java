@@ -4,182 +4,375 @@ package graphalg;
 
 import graph.*;
 import set.*;
-import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The Kruskal class contains the method minSpanTree(), which implements
  * Kruskal's algorithm for computing a minimum spanning tree of a graph.
+ *
+ * Edges are kept as primitive records from start to finish:  endpoint ids
+ * 0..n-1 and weights live in three parallel int arrays, and the sort works on
+ * a long[] of keys that pack each edge's weight (high half) and index (low
+ * half).  Sorting the keys as longs orders edges by weight, with ties kept in
+ * edge index order, and the union-find loop reads only int and long arrays.
+ *
+ * The sort can be chosen with a Sort value.  Keys are distinct, so every
+ * choice yields the same order and therefore the same tree.
  */
 public class Kruskal {
 
-  /**
-   * Simple edge representation for Kruskal. This is separate from any
-   * internal edge representation inside WUGraph to preserve encapsulation.
-   */
-  private static class Edge {
-    Object u;
-    Object v;
-    int weight;
-
-    Edge(Object u, Object v, int weight) {
-      this.u = u;
-      this.v = v;
-      this.weight = weight;
-    }
+  /** How to sort the edges by weight. */
+  public enum Sort {
+    /** Recursive merge sort; O(|E| log |E|). */
+    MERGE,
+    /** Byte-wise LSD radix sort on the weights; O(|E|). */
+    RADIX,
+    /**
+     * Merge sort whose halves and merges run in parallel in the common
+     * ForkJoinPool.  See minSpanTree(WUGraph, int, int) to choose the
+     * parallelism and cutoff.
+     */
+    PARALLEL,
+    /**
+     * No full sort:  the edges are heapified in O(|E|) and popped lightest
+     * first only until the forest is complete, so the heavy edges that a
+     * spanning tree never needs are never ordered.
+     */
+    HEAP
   }
 
   /**
    * minSpanTree() returns a WUGraph that represents the minimum spanning tree
    * of the WUGraph g. The original WUGraph g is NOT changed.
    *
-   * Running time: O(|V| + |E| log |E|).
+   * Running time: O(|V| + |E|).
    *
    * @param g The weighted, undirected graph whose MST we want to compute.
    * @return A newly constructed WUGraph representing the MST of g.
    */
   public static WUGraph minSpanTree(WUGraph g) {
-    // 1. Get all vertices from g and create an empty MST graph T with the
-    //    same vertex set and no edges.
-    Object[] vertices = g.getVertices();
-    int n = vertices.length;
+    return minSpanTree(g, Sort.RADIX);
+  }
 
-    WUGraph T = new WUGraph();
-    for (int i = 0; i < n; i++) {
-      T.addVertex(vertices[i]);
-    }
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g, sorting the edges with the given sort.  The original
+   * WUGraph g is NOT changed.
+   *
+   * Running time: O(|V| + |E| log |E|) for MERGE and PARALLEL, O(|V| + |E|)
+   * for RADIX, and O(|V| + |E| + k log |E|) for HEAP, where k is the number
+   * of edges popped.
+   */
+  public static WUGraph minSpanTree(WUGraph g, Sort sort) {
+    return minSpanTree(g, sort, 0, KeySort.PARALLEL_CUTOFF);
+  }
 
-    // Edge case - no vertices or no edges, return T as is.
-    if (n == 0 || g.edgeCount() == 0) {
-      return T;
-    }
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g, sorting the edges with a parallel merge sort that uses
+   * "parallelism" threads and sorts parts of at most "cutoff" edges
+   * sequentially.  The tree is the same as with any other sort.
+   *
+   * Running time: O(|V| + |E| log |E|) work.
+   */
+  public static WUGraph minSpanTree(WUGraph g, int parallelism, int cutoff) {
+    return minSpanTree(g, Sort.PARALLEL, parallelism, cutoff);
+  }
 
-    // 2. Build a mapping from vertex Object to integer id (0..n-1)
-    HashMap<Object, Integer> vertexToId = new HashMap<Object, Integer>();
-    for (int i = 0; i < n; i++) {
-      vertexToId.put(vertices[i], Integer.valueOf(i));
-    }
+  /**
+   * minSpanTree() does the work of the public WUGraph versions.  For the
+   * PARALLEL sort, a parallelism of 0 means the common ForkJoinPool.
+   */
+  private static WUGraph minSpanTree(WUGraph g, Sort sort, int parallelism,
+                                     int cutoff) {
+    // 1-2. Number the vertices 0..n-1 by their positions in getVertices(),
+    //      and get every edge once with its endpoints already numbered.
+    return forest(EdgeList.of(g), sort, parallelism, cutoff).toGraph();
+  }
+
+  /**
+   * minSpanForest() returns the minimum spanning forest of the WUGraph g as
+   * primitive edge arrays, without building a WUGraph for it.  The original
+   * WUGraph g is NOT changed.
+   *
+   * Running time: O(|V| + |E|).
+   */
+  public static MstResult minSpanForest(WUGraph g) {
+    return forest(EdgeList.of(g), Sort.RADIX, 0, KeySort.PARALLEL_CUTOFF);
+  }
+
+  /**
+   * minSpanForest() returns the minimum spanning forest of the WUGraph g,
+   * like minSpanForest(g), but the radix sort uses the caller's scratch
+   * buffer instead of allocating its own.  A caller that computes many
+   * forests can pass the same buffer every time.  scratch must have at
+   * least g.edgeCount() entries, and its contents are overwritten.
+   *
+   * Running time: O(|V| + |E|).
+   *
+   * @throws IllegalArgumentException if scratch is shorter than |E|.
+   */
+  public static MstResult minSpanForest(WUGraph g, long[] scratch) {
+    return forest(EdgeList.of(g), Sort.RADIX, 0, KeySort.PARALLEL_CUTOFF,
+                  scratch);
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the frozen graph g.  Edges are read straight out of the snapshot's
+   * arrays, so no vertex hashing is needed to number the vertices.  They are
+   * numbered as WUGraph.getEdges() numbers them, so ties between equal
+   * weights break the same way, and the tree is the one minSpanTree()
+   * returns for the WUGraph that was frozen.
+   *
+   * Running time: O(|V| + |E|).
+   *
+   * @param g The snapshot whose MST we want to compute.
+   * @return A newly constructed WUGraph representing the MST of g.
+   */
+  public static WUGraph minSpanTree(CsrGraph g) {
+    return minSpanTree(g, Sort.RADIX);
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the frozen graph g, sorting the edges with the given sort.
+   *
+   * Running time: as for the WUGraph version.
+   */
+  public static WUGraph minSpanTree(CsrGraph g, Sort sort) {
+    return minSpanTree(g, sort, 0, KeySort.PARALLEL_CUTOFF);
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the frozen graph g, sorting the edges with a parallel merge sort that
+   * uses "parallelism" threads and sorts parts of at most "cutoff" edges
+   * sequentially.
+   *
+   * Running time: O(|V| + |E| log |E|) work.
+   */
+  public static WUGraph minSpanTree(CsrGraph g, int parallelism, int cutoff) {
+    return minSpanTree(g, Sort.PARALLEL, parallelism, cutoff);
+  }
+
+  private static WUGraph minSpanTree(CsrGraph g, Sort sort, int parallelism,
+                                     int cutoff) {
+    return forest(EdgeList.of(g), sort, parallelism, cutoff).toGraph();
+  }
+
+  /**
+   * minSpanForest() returns the minimum spanning forest of the frozen graph
+   * g as primitive edge arrays, without building a WUGraph for it.
+   *
+   * Running time: O(|V| + |E|).
+   */
+  public static MstResult minSpanForest(CsrGraph g) {
+    return forest(EdgeList.of(g), Sort.RADIX, 0, KeySort.PARALLEL_CUTOFF);
+  }
 
-    // 3. Build a list of all edges in g without double counting.
-    //    We rely on g.edgeCount() to know how many undirected edges exist.
+  /**
+   * minSpanForest() returns the minimum spanning forest of the frozen graph
+   * g, sorting with the caller's scratch buffer, which must have at least
+   * g.edgeCount() entries.  See minSpanForest(WUGraph, long[]).
+   *
+   * Running time: O(|V| + |E|).
+   *
+   * @throws IllegalArgumentException if scratch is shorter than |E|.
+   */
+  public static MstResult minSpanForest(CsrGraph g, long[] scratch) {
+    return forest(EdgeList.of(g), Sort.RADIX, 0, KeySort.PARALLEL_CUTOFF,
+                  scratch);
+  }
+
+  /**
+   * minSpanTree() returns an OffHeapWUGraph that represents the minimum
+   * spanning tree of the OffHeapWUGraph g.  The original graph g is NOT
+   * changed.  The caller owns the returned graph and must close() it.
+   *
+   * The tree itself is off-heap, but the edge list being sorted is not, so
+   * this call uses O(|V| + |E|) heap while it runs.
+   *
+   * Running time: O(|V| + |E|).
+   *
+   * @param g The off-heap graph whose MST we want to compute.
+   * @return A newly constructed OffHeapWUGraph representing the MST of g.
+   */
+  public static OffHeapWUGraph minSpanTree(OffHeapWUGraph g) {
+    int[] vertices = g.getVertices();
+    int n = vertices.length;
     int m = g.edgeCount();
-    Edge[] edges = new Edge[m];
-    int edgeIndex = 0;
 
+    int[] us = new int[m];
+    int[] vs = new int[m];
+    int[] ws = new int[m];
+    g.getEdges(us, vs, ws);
+
+    int[] tree = new int[Math.min(m, n)];
+    int treeSize = selectTreeEdges(n, us, vs, ws, m, tree, Sort.RADIX, 0, 0,
+                                   null);
+
+    OffHeapWUGraph T = new OffHeapWUGraph(n, treeSize);
     for (int i = 0; i < n; i++) {
-      Object u = vertices[i];
-      Neighbors neigh = g.getNeighbors(u);
-      if (neigh == null) {
-        continue;  // isolated vertex
-      }
+      T.addVertex(vertices[i]);
+    }
+    for (int i = 0; i < treeSize; i++) {
+      int e = tree[i];
+      T.addEdge(vertices[us[e]], vertices[vs[e]], ws[e]);
+    }
+    return T;
+  }
 
-      Object[] neighborList = neigh.neighborList;
-      int[] weightList = neigh.weightList;
+  /**
+   * forest() runs Kruskal's algorithm over edges and returns the minimum
+   * spanning forest.  The sort allocates its own scratch buffer.
+   */
+  static MstResult forest(EdgeList edges, Sort sort, int parallelism,
+                          int cutoff) {
+    return forest(edges, sort, parallelism, cutoff, null);
+  }
 
-      for (int k = 0; k < neighborList.length; k++) {
-        Object v = neighborList[k];
-        int j = vertexToId.get(v).intValue();
+  /**
+   * forest() runs Kruskal's algorithm over edges, sorting with scratch,
+   * which must have at least edges.m entries, or is null to allocate one.
+   */
+  static MstResult forest(EdgeList edges, Sort sort, int parallelism,
+                          int cutoff, long[] scratch) {
+    if (scratch != null && scratch.length < edges.m) {
+      throw new IllegalArgumentException("scratch has " + scratch.length +
+                                         " entries for " + edges.m +
+                                         " edges");
+    }
+    int[] tree = new int[Math.min(edges.m, edges.n)];
+    int treeSize = selectTreeEdges(edges.n, edges.us, edges.vs, edges.ws,
+                                   edges.m, tree, sort, parallelism, cutoff,
+                                   scratch);
+    return edges.forest(tree, treeSize);
+  }
 
-        // Avoid double counting: only record edges for which id(u) <= id(v).
-        if (i <= j) {
-          edges[edgeIndex++] = new Edge(u, v, weightList[k]);
-        }
-      }
+  /**
+   * selectTreeEdges() runs Kruskal's algorithm over the first m edges (us[i],
+   * vs[i]) with weights ws[i], whose endpoints are ids 0..n-1.  It writes the
+   * indices of the edges of the minimum spanning forest into tree, in the
+   * order they were chosen, and returns how many there are.  tree must have
+   * room for min(m, n - 1) entries.  parallelism and cutoff apply to the
+   * PARALLEL sort only.  scratch is the sort's working space, of at least m
+   * entries, or null to allocate it; the HEAP mode needs none.
+   */
+  private static int selectTreeEdges(int n, int[] us, int[] vs, int[] ws,
+                                     int m, int[] tree, Sort sort,
+                                     int parallelism, int cutoff,
+                                     long[] scratch) {
+    if (m == 0) {
+      return 0;
     }
 
-    // In case something is off and we collected fewer edges than g.edgeCount(),
-    // shrink the array to the actual number collected.
-    if (edgeIndex < m) {
-      Edge[] trimmed = new Edge[edgeIndex];
-      for (int i = 0; i < edgeIndex; i++) {
-        trimmed[i] = edges[i];
-      }
-      edges = trimmed;
-      m = edgeIndex;
+    // 3. Pack each edge into a sort key: weight in the high half, index in
+    //    the low half.  Indices are distinct, so no two keys are equal.
+    long[] keys = new long[m];
+    for (int i = 0; i < m; i++) {
+      keys[i] = EdgeList.key(ws[i], i);
+    }
+
+    if (sort == Sort.HEAP) {
+      return selectFromHeap(n, us, vs, keys, m, tree);
     }
 
-    // 4. Sort edges by weight using our own sort - no Java built in sort.
-    mergeSort(edges, 0, m - 1);
+    // 4. Sort keys by weight using our own sort - no Java built in sort.
+    sortKeys(keys, m, sort, parallelism, cutoff, scratch);
 
-    // 5. Run Kruskal using DisjointSets.
+    // 5. Run Kruskal using DisjointSets.  A forest on n vertices has at most
+    //    n - 1 edges, so stop as soon as that many have been chosen.
     DisjointSets sets = new DisjointSets(n);
+    int treeSize = 0;
 
-    for (int i = 0; i < m; i++) {
-      Edge e = edges[i];
-      int uId = vertexToId.get(e.u).intValue();
-      int vId = vertexToId.get(e.v).intValue();
+    for (int i = 0; i < m && treeSize < n - 1; i++) {
+      int e = (int) keys[i];
 
-      int rootU = sets.find(uId);
-      int rootV = sets.find(vId);
+      int rootU = sets.find(us[e]);
+      int rootV = sets.find(vs[e]);
 
       // Only add edge if it connects two different components.
       if (rootU != rootV) {
-        T.addEdge(e.u, e.v, e.weight);
+        tree[treeSize++] = e;
         // Always union by roots to keep DisjointSets happy.
         sets.union(rootU, rootV);
       }
     }
 
-    return T;
+    return treeSize;
   }
 
   /**
-   * mergeSort() sorts the edges array in place by nondecreasing weight.
+   * selectFromHeap() is selectTreeEdges() for the HEAP mode.  A first
+   * union-find pass over the edges in any order counts the components c, so
+   * that the main loop knows the forest is complete once it holds n - c
+   * edges.  The keys are then heapified and popped lightest first until it
+   * is.
    *
-   * Running time: O(m log m) where m is edges.length.
+   * The first pass stops as soon as it has made n - 1 merges, but on a
+   * graph that is not connected it never gets there, and reads all m edges
+   * once.  That is an O(m) pass of near-constant-time finds, which is still
+   * cheaper than the O(m log m) of popping every edge off the heap.
    */
-  private static void mergeSort(Edge[] edges, int left, int right) {
-    if (left >= right) {
-      return;
+  private static int selectFromHeap(int n, int[] us, int[] vs, long[] keys,
+                                    int m, int[] tree) {
+    DisjointSets sets = new DisjointSets(n);
+    int treeLimit = 0;
+    for (int e = 0; e < m && treeLimit < n - 1; e++) {
+      int rootU = sets.find(us[e]);
+      int rootV = sets.find(vs[e]);
+      if (rootU != rootV) {
+        sets.union(rootU, rootV);
+        treeLimit++;
+      }
     }
 
-    int mid = (left + right) / 2;
-    mergeSort(edges, left, mid);
-    mergeSort(edges, mid + 1, right);
-    merge(edges, left, mid, right);
-  }
+    KeySort.heapify(keys, m);
+    sets = new DisjointSets(n);
+    int treeSize = 0;
+    int heapSize = m;
 
-  /**
-   * merge() is the helper for mergeSort().
-   */
-  private static void merge(Edge[] edges, int left, int mid, int right) {
-    int n1 = mid - left + 1;
-    int n2 = right - mid;
+    while (treeSize < treeLimit) {
+      int e = (int) KeySort.popMin(keys, heapSize--);
 
-    Edge[] leftArr = new Edge[n1];
-    Edge[] rightArr = new Edge[n2];
-
-    for (int i = 0; i < n1; i++) {
-      leftArr[i] = edges[left + i];
-    }
-    for (int j = 0; j < n2; j++) {
-      rightArr[j] = edges[mid + 1 + j];
-    }
-
-    int i = 0;
-    int j = 0;
-    int k = left;
-
-    while (i < n1 && j < n2) {
-      if (leftArr[i].weight <= rightArr[j].weight) {
-        edges[k] = leftArr[i];
-        i++;
-      } else {
-        edges[k] = rightArr[j];
-        j++;
+      int rootU = sets.find(us[e]);
+      int rootV = sets.find(vs[e]);
+      if (rootU != rootV) {
+        tree[treeSize++] = e;
+        sets.union(rootU, rootV);
       }
-      k++;
     }
 
-    while (i < n1) {
-      edges[k] = leftArr[i];
-      i++;
-      k++;
-    }
+    return treeSize;
+  }
 
-    while (j < n2) {
-      edges[k] = rightArr[j];
-      j++;
-      k++;
+  /**
+   * sortKeys() sorts keys[0..m-1] with the given sort, using scratch[0..m-1]
+   * as working space.  If scratch is null, a buffer of m entries is
+   * allocated for this call.  For PARALLEL, a parallelism of 0 means the
+   * common ForkJoinPool; otherwise a pool of that many threads is started
+   * for this sort alone.
+   */
+  private static void sortKeys(long[] keys, int m, Sort sort, int parallelism,
+                               int cutoff, long[] scratch) {
+    if (scratch == null) {
+      scratch = new long[m];
+    }
+    if (sort == Sort.MERGE) {
+      KeySort.mergeSort(keys, m, scratch);
+    } else if (sort == Sort.RADIX) {
+      KeySort.radixSort(keys, m, scratch);
+    } else if (parallelism == 0) {
+      KeySort.parallelMergeSort(keys, m, scratch, ForkJoinPool.commonPool(),
+                                cutoff);
+    } else {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        KeySort.parallelMergeSort(keys, m, scratch, pool, cutoff);
+      } finally {
+        pool.shutdown();
+      }
     }
   }
 }
@@ -0,0 +1,246 @@
+/* Mst.java */
+
+package graphalg;
+
+import graph.*;
+import java.io.File;
+
+/**
+ * The Mst class is the single entry point for computing minimum spanning
+ * trees.  compute() either runs the engine the options name, or (with
+ * Engine.AUTO) looks at the graph and picks the engine that should be
+ * fastest:
+ *
+ *  - parallel Boruvka, if at least as many threads are allowed as the host
+ *    has processors, and the graph has enough edges for them to pay off;
+ *  - Prim with the array queue, if the graph is nearly complete;
+ *  - Prim with a heap, if the average degree is high;
+ *  - Filter-Kruskal, if the average degree is moderate (the bar is higher
+ *    for narrow weight ranges, where the radix sort needs fewer passes);
+ *  - otherwise Kruskal with the radix sort.
+ *
+ * The thresholds between these depend on the host, so they are measured
+ * once by a calibration run of a few seconds and saved to a properties file
+ * (see MstOptions); later runs, in this process or others, load the file.
+ * With the default options, the first AUTO call on a host without that file
+ * therefore blocks for those seconds.  Where that matters (tests, short-lived
+ * containers, a read-only home directory), turn calibration off with
+ * MstOptions.calibrate(false), or ship a calibration file and point
+ * MstOptions.calibrationFile() at it.
+ */
+public class Mst {
+
+  /** Thresholds in use, and the file they belong to. */
+  private static MstThresholds thresholds;
+  private static File thresholdsFile;
+  private static boolean thresholdsCalibrated;
+
+  /**
+   * compute() returns a WUGraph that represents the minimum spanning tree of
+   * the WUGraph g, choosing the engine automatically.  The original WUGraph
+   * g is NOT changed.  The first call in a process may calibrate first; see
+   * compute(WUGraph, MstOptions).
+   */
+  public static WUGraph compute(WUGraph g) {
+    return compute(g, new MstOptions());
+  }
+
+  /**
+   * compute() returns a WUGraph that represents the minimum spanning tree of
+   * the WUGraph g, using the given options.  The original WUGraph g is NOT
+   * changed.  Every engine gives a tree of the same total weight.
+   *
+   * With Engine.AUTO, the first call in a process reads the calibration
+   * file.  If the file is missing, damaged or was measured with another
+   * number of processors, and calibration is on (the default), the call
+   * first runs the calibration, which blocks for a few seconds.  Later calls
+   * reuse the thresholds in memory.
+   *
+   * Running time: O(|V| + |E|) to gather the statistics, plus the engine's
+   * own time, plus the calibration's seconds on a first AUTO call as above.
+   */
+  public static WUGraph compute(WUGraph g, MstOptions options) {
+    return computeForest(g, options).toGraph();
+  }
+
+  /**
+   * computeForest() returns the minimum spanning forest of the WUGraph g as
+   * primitive edge arrays, choosing the engine automatically.  Use it when
+   * only the cost or the edges are needed; no WUGraph is built.  Like
+   * compute(), the first call in a process may calibrate first.
+   */
+  public static MstResult computeForest(WUGraph g) {
+    return computeForest(g, new MstOptions());
+  }
+
+  /**
+   * computeForest() returns the minimum spanning forest of the WUGraph g as
+   * primitive edge arrays, using the given options.  The original WUGraph g
+   * is NOT changed.
+   *
+   * Running time: as for compute(), including the first AUTO call's
+   * calibration, less the O(|V|) hashed insertions that build the tree's
+   * WUGraph.
+   */
+  public static MstResult computeForest(WUGraph g, MstOptions options) {
+    MstOptions.Engine engine = options.getEngine();
+    int parallelism = options.parallelismSetting();
+    if (engine != MstOptions.Engine.AUTO) {
+      return run(g, engine, parallelism);
+    }
+    // The edge list gives choose() its statistics, and then is the input of
+    // every engine but Prim, so the graph's edges are gathered only once.
+    EdgeList edges = EdgeList.of(g);
+    engine = choose(edges, options);
+    if (isPrim(engine)) {
+      return run(g, engine, parallelism);
+    }
+    return run(edges, engine, parallelism);
+  }
+
+  /**
+   * choose() returns the engine compute() would run on g with the given
+   * options.  If options name an engine other than AUTO, that is the one.
+   *
+   * Running time: O(|V| + |E|), to gather the edges and the weight range,
+   * plus a calibration run on the first call, as for compute().
+   */
+  public static MstOptions.Engine choose(WUGraph g, MstOptions options) {
+    if (options.getEngine() != MstOptions.Engine.AUTO) {
+      return options.getEngine();
+    }
+    return choose(EdgeList.of(g), options);
+  }
+
+  /**
+   * choose() picks the engine for AUTO, taking the weight range from edges.
+   */
+  private static MstOptions.Engine choose(EdgeList edges,
+                                          MstOptions options) {
+    int m = edges.m;
+    if (m == 0) {
+      return MstOptions.Engine.KRUSKAL;
+    }
+    int[] ws = edges.ws;
+    int min = ws[0];
+    int max = ws[0];
+    for (int i = 1; i < m; i++) {
+      min = Math.min(min, ws[i]);
+      max = Math.max(max, ws[i]);
+    }
+    return choose(edges.n, m, (long) max - min, options.getParallelism(),
+                  thresholds(options));
+  }
+
+  /**
+   * choose() picks an engine for a graph with n vertices, m edges and the
+   * given weight range, to run on "parallelism" threads.  t.parallelEdges
+   * was measured with Boruvka on all t.cores processors, so Boruvka is only
+   * picked when it may use at least that many threads; with fewer, it would
+   * need more edges than that to pay off, by how much is not known.
+   */
+  static MstOptions.Engine choose(int n, int m, long weightRange,
+                                  int parallelism, MstThresholds t) {
+    double degree = (double) m / n;
+    double fill = n > 1 ? m / ((double) n * (n - 1) / 2) : 0;
+
+    if (parallelism > 1 && parallelism >= t.cores &&
+        m >= t.parallelEdges) {
+      return MstOptions.Engine.BORUVKA;
+    }
+    if (fill >= t.arrayFill) {
+      return MstOptions.Engine.PRIM_ARRAY;
+    }
+    if (degree >= t.primDegree) {
+      return MstOptions.Engine.PRIM;
+    }
+    double filterDegree = weightRange < MstThresholds.NARROW_RANGE ?
+        t.filterDegreeNarrow : t.filterDegreeWide;
+    if (degree >= filterDegree) {
+      return MstOptions.Engine.FILTER_KRUSKAL;
+    }
+    return MstOptions.Engine.KRUSKAL;
+  }
+
+  private static boolean isPrim(MstOptions.Engine engine) {
+    return engine == MstOptions.Engine.PRIM ||
+           engine == MstOptions.Engine.PRIM_ARRAY;
+  }
+
+  /**
+   * run() computes the minimum spanning forest of g with the given engine.
+   * Prim runs on a frozen snapshot of g, every other engine on its edge
+   * list.  A parallelism of 0 means the common ForkJoinPool.
+   */
+  static MstResult run(WUGraph g, MstOptions.Engine engine, int parallelism) {
+    switch (engine) {
+    case PRIM:
+      return Prim.forest(g.freeze(), Prim.Queue.DARY);
+    case PRIM_ARRAY:
+      return Prim.forest(g.freeze(), Prim.Queue.ARRAY);
+    default:
+      return run(EdgeList.of(g), engine, parallelism);
+    }
+  }
+
+  /**
+   * run() computes the minimum spanning forest of edges with the given
+   * engine, which must not be a Prim engine.
+   */
+  private static MstResult run(EdgeList edges, MstOptions.Engine engine,
+                               int parallelism) {
+    switch (engine) {
+    case KRUSKAL_HEAP:
+      return Kruskal.forest(edges, Kruskal.Sort.HEAP, 0, 0);
+    case FILTER_KRUSKAL:
+      return FilterKruskal.forest(edges);
+    case BORUVKA:
+      return Boruvka.forest(edges, parallelism);
+    default:
+      return Kruskal.forest(edges, Kruskal.Sort.RADIX, 0, 0);
+    }
+  }
+
+  /**
+   * thresholds() returns the thresholds for the options' calibration file:
+   * the ones already in memory if they came from the same file, otherwise
+   * the file's, otherwise (if calibration is allowed) freshly measured ones,
+   * which are saved to the file.  If calibration is not allowed, built-in
+   * defaults are used.
+   *
+   * Measured thresholds are kept in memory for the rest of the process
+   * whether or not save() succeeds, so an unwritable or null file costs one
+   * calibration per process, not one per call.
+   */
+  static synchronized MstThresholds thresholds(MstOptions options) {
+    File file = options.getCalibrationFile();
+    boolean calibrate = options.getCalibrate();
+    if (thresholds != null && sameFile(file, thresholdsFile) &&
+        (thresholdsCalibrated || !calibrate)) {
+      return thresholds;
+    }
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    MstThresholds t = MstThresholds.load(file, cores);
+    boolean calibrated = true;
+    if (t == null) {
+      if (calibrate) {
+        t = MstThresholds.calibrate(cores);
+        if (file != null) {
+          t.save(file);
+        }
+      } else {
+        t = MstThresholds.defaults(cores);
+        calibrated = false;
+      }
+    }
+    thresholds = t;
+    thresholdsFile = file;
+    thresholdsCalibrated = calibrated;
+    return t;
+  }
+
+  private static boolean sameFile(File a, File b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
@@ -0,0 +1,128 @@
+/* MstOptions.java */
+
+package graphalg;
+
+import java.io.File;
+
+/**
+ * An MstOptions object tells Mst.compute() which engine to run, or lets it
+ * pick one, and how.  Setters return the options, so they chain:
+ *
+ *   MstOptions o = new MstOptions().parallelism(8).calibrate(false);
+ *
+ * By default the engine is AUTO, all available processors may be used, and
+ * thresholds come from the calibration file in the user's home directory,
+ * which is created by a short calibration run if it does not exist.  That
+ * run takes a few seconds, and the first AUTO call waits for it.  Use
+ * calibrate(false), or a calibration file made beforehand, where the wait
+ * is not acceptable.
+ */
+public class MstOptions {
+
+  /** The MST engines Mst.compute() can run. */
+  public enum Engine {
+    /** Pick an engine from the graph's statistics. */
+    AUTO,
+    /** Kruskal with the radix sort. */
+    KRUSKAL,
+    /** Kruskal with the lazy heap. */
+    KRUSKAL_HEAP,
+    /** Filter-Kruskal. */
+    FILTER_KRUSKAL,
+    /** Prim with a 4-ary heap. */
+    PRIM,
+    /** Prim with the O(n^2) array queue. */
+    PRIM_ARRAY,
+    /** Parallel Boruvka. */
+    BORUVKA
+  }
+
+  /** Default calibration file. */
+  public static final File DEFAULT_CALIBRATION_FILE =
+      new File(System.getProperty("user.home"), ".wugraph-mst.properties");
+
+  private Engine engine;
+  private int parallelism;
+  private File calibrationFile;
+  private boolean calibrate;
+
+  /**
+   * Construct the default options.
+   */
+  public MstOptions() {
+    engine = Engine.AUTO;
+    parallelism = 0;
+    calibrationFile = DEFAULT_CALIBRATION_FILE;
+    calibrate = true;
+  }
+
+  /**
+   * engine() sets the engine to run; AUTO lets Mst.compute() choose.
+   */
+  public MstOptions engine(Engine engine) {
+    this.engine = engine;
+    return this;
+  }
+
+  /**
+   * parallelism() sets how many threads parallel engines may use; 0 means
+   * all available processors, in the common ForkJoinPool rather than a pool
+   * of their own.  AUTO only picks parallel Boruvka when this is at least
+   * the number of available processors, which is what its threshold was
+   * measured with.
+   */
+  public MstOptions parallelism(int parallelism) {
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * calibrationFile() sets where thresholds are loaded from and saved to,
+   * or null to keep them in memory only.
+   */
+  public MstOptions calibrationFile(File file) {
+    calibrationFile = file;
+    return this;
+  }
+
+  /**
+   * calibrate() sets whether a missing or stale calibration file is replaced
+   * by running the calibration, which takes a few seconds.  If false,
+   * built-in thresholds are used instead.
+   */
+  public MstOptions calibrate(boolean calibrate) {
+    this.calibrate = calibrate;
+    return this;
+  }
+
+  public Engine getEngine() {
+    return engine;
+  }
+
+  /**
+   * getParallelism() returns the number of threads to use, with 0 resolved
+   * to the number of available processors.
+   */
+  public int getParallelism() {
+    if (parallelism > 0) {
+      return parallelism;
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * parallelismSetting() returns the thread count as set, 0 meaning the
+   * common ForkJoinPool, for engines that can run there.
+   */
+  int parallelismSetting() {
+    return parallelism;
+  }
+
+  public File getCalibrationFile() {
+    return calibrationFile;
+  }
+
+  public boolean getCalibrate() {
+    return calibrate;
+  }
+}
@@ -0,0 +1,70 @@
+/* MstResult.java */
+
+package graphalg;
+
+import graph.*;
+import java.util.Arrays;
+
+/**
+ * An MstResult is a minimum spanning forest in primitive form.  Vertices are
+ * numbered 0..vertices.length-1 by their positions in "vertices", and tree
+ * edge i runs between vertices[u[i]] and vertices[v[i]] with weight
+ * weight[i].  The edge arrays are exactly as long as the forest.
+ *
+ * Building a WUGraph for the forest costs a hashed insertion per vertex and
+ * per edge, which callers that only want the cost or the edge list do not
+ * need; toGraph() builds one on demand.
+ *
+ * Like Neighbors, this class is a collection of data, so all fields are
+ * public.
+ */
+public class MstResult {
+  public Object[] vertices;
+  public int[] u;
+  public int[] v;
+  public int[] weight;
+  public long totalWeight;
+  public int components;
+
+  /**
+   * Construct a result from the first "size" edges of the given arrays.  The
+   * total weight and the number of components are computed here.
+   */
+  public MstResult(Object[] vertices, int[] u, int[] v, int[] weight,
+                   int size) {
+    this.vertices = vertices;
+    this.u = u.length == size ? u : Arrays.copyOf(u, size);
+    this.v = v.length == size ? v : Arrays.copyOf(v, size);
+    this.weight = weight.length == size ?
+        weight : Arrays.copyOf(weight, size);
+    totalWeight = 0;
+    for (int i = 0; i < size; i++) {
+      totalWeight += weight[i];
+    }
+    // Each forest edge joins two trees, starting from one tree per vertex.
+    components = vertices.length - size;
+  }
+
+  /**
+   * edgeCount() returns the number of edges in the forest.
+   */
+  public int edgeCount() {
+    return u.length;
+  }
+
+  /**
+   * toGraph() returns a new WUGraph with every vertex and every forest edge.
+   *
+   * Running time: O(|V| + |E|), where |E| is the size of the forest.
+   */
+  public WUGraph toGraph() {
+    int n = vertices.length;
+    int size = u.length;
+    WUGraph.Builder T = new WUGraph.Builder(n, size);
+    T.addVertices(vertices);
+    for (int i = 0; i < size; i++) {
+      T.addEdge(vertices[u[i]], vertices[v[i]], weight[i]);
+    }
+    return T.build();
+  }
+}
@@ -0,0 +1,445 @@
+/* MstTest.java */
+
+package graphalg;
+
+import graph.*;
+import set.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The MstTest class checks the MST engines against Kruskal.minSpanForest(),
+ * whose forest is the reference.  Every engine orders edges by the same
+ * packed keys, so every engine must pick the very same edges:
+ *
+ *  - filter: FilterKruskal must return Kruskal's forest, edge for edge and
+ *    in the same order;
+ *  - heap:   so must Kruskal in HEAP mode, which counts components first to
+ *    know when to stop popping;
+ *  - prim:   Prim breaks ties by its own order, so with every queue its
+ *    forest must only be a forest of the graph's edges with Kruskal's edge
+ *    count, component count and total weight;
+ *  - boruvka: Boruvka, at 1, 2 and 4 threads, must return Kruskal's edges
+ *    in its own order.  The largest graphs span many chunks of live edges,
+ *    so the chunked, parallel scans and compaction run too;
+ *  - kkt:    Karger-Klein-Tarjan, with several seeds, must return Kruskal's
+ *    edges in its own order.  Graphs above its 1024-edge cutoff go through
+ *    the sampling and F-heavy filtering, several levels deep;
+ *  - scratch: Kruskal sorting with one caller-owned scratch buffer, reused
+ *    from graph to graph, must return the same forest as without it, and a
+ *    buffer shorter than the edge count must be refused;
+ *  - choose: Mst.choose() must pick each engine where hand-made thresholds
+ *    say it should, and Boruvka only with at least as many threads as the
+ *    thresholds were measured with;
+ *  - thresholds: thresholds must survive a save() and load() round trip;
+ *    load() must refuse damaged files, other versions and other processor
+ *    counts; Mst must recalibrate (and rewrite the file) when the file is
+ *    damaged, use defaults when calibration is off, and calibrate only once
+ *    when the file cannot be written;
+ *  - compute: Mst.computeForest() must give Kruskal's weight with AUTO and
+ *    with every engine named.
+ *
+ * Every check runs on a set of graphs that includes the empty graph, single
+ * vertices with and without a self-edge, isolated vertices, graphs split
+ * into several components, graphs where almost every weight ties, and
+ * graphs with negative weights, some of them with many more edges than the
+ * engines' own cutoffs.  The thresholds checks calibrate twice, which takes
+ * a few seconds; their files are temporary and deleted afterward.  The test
+ * exits with status 1 if any check fails.
+ *
+ *   javac graph/*.java graphalg/*.java set/*.java
+ *   java -cp . graphalg.MstTest
+ */
+class MstTest {
+
+  private static int errors = 0;
+
+  private static void check(boolean ok, String what) {
+    if (!ok) {
+      if (errors < 10) {
+        System.out.println("FAILED: " + what);
+      }
+      errors++;
+    }
+  }
+
+  /**
+   * randomGraph() returns a graph on n vertices split into "parts"
+   * components (vertex i is in part i % parts), with about "m" random edges
+   * inside the parts, one in twenty of them a self-edge, and weights in
+   * [lo, lo + range).  A range of 0 means any int.
+   */
+  static WUGraph randomGraph(int n, int m, int parts, int lo, int range,
+                             Random random) {
+    Integer[] verts = new Integer[n];
+    WUGraph g = new WUGraph();
+    for (int i = 0; i < n; i++) {
+      verts[i] = Integer.valueOf(i);
+      g.addVertex(verts[i]);
+    }
+    for (int i = 0; i < m && n > 0; i++) {
+      int u = random.nextInt(n);
+      int v = u;
+      if (random.nextInt(20) != 0) {
+        v = u % parts + parts * random.nextInt((n - 1 - u % parts) / parts
+                                               + 1);
+      }
+      int weight = range == 0 ? random.nextInt()
+                              : lo + random.nextInt(range);
+      g.addEdge(verts[u], verts[v], weight);
+    }
+    return g;
+  }
+
+  /**
+   * graphs() returns the graphs every engine is checked on.
+   */
+  static WUGraph[] graphs() {
+    Random random = new Random(37);
+    WUGraph one = randomGraph(1, 0, 1, 0, 1, random);
+    WUGraph loop = randomGraph(1, 0, 1, 0, 1, random);
+    loop.addEdge(Integer.valueOf(0), Integer.valueOf(0), -5);
+    return new WUGraph[] {
+      new WUGraph(),
+      one,
+      loop,
+      randomGraph(2, 0, 1, 0, 1, random),
+      randomGraph(60, 800, 1, 0, 1000, random),
+      randomGraph(500, 3000, 1, 0, 1000, random),
+      randomGraph(600, 4000, 7, 0, 1000, random),
+      randomGraph(500, 4000, 3, 0, 3, random),
+      randomGraph(400, 3000, 4, -1000, 2000, random),
+      randomGraph(300, 3000, 1, 0, 0, random),
+      randomGraph(3000, 40000, 5, -50, 100, random),
+      randomGraph(20000, 120000, 2, 0, 0, random)
+    };
+  }
+
+  /**
+   * describe() names g for failure messages.
+   */
+  static String describe(WUGraph g) {
+    return g.vertexCount() + " vertices, " + g.edgeCount() + " edges";
+  }
+
+  /**
+   * sameForest() checks that "got" is the forest "expected", edge for edge
+   * and in the same order.
+   */
+  static void sameForest(MstResult expected, MstResult got, String what) {
+    check(Arrays.equals(expected.vertices, got.vertices),
+          what + ": vertices differ");
+    check(Arrays.equals(expected.u, got.u) &&
+          Arrays.equals(expected.v, got.v) &&
+          Arrays.equals(expected.weight, got.weight),
+          what + ": different edges");
+    check(expected.totalWeight == got.totalWeight &&
+          expected.components == got.components,
+          what + ": weight " + got.totalWeight + " and " + got.components +
+          " components, expected " + expected.totalWeight + " and " +
+          expected.components);
+  }
+
+  /**
+   * sameEdges() checks that "got" has the same edges as the forest
+   * "expected" of g, in any order, and that each has its weight in g.
+   */
+  static void sameEdges(WUGraph g, MstResult expected, MstResult got,
+                        String what) {
+    check(Arrays.equals(expected.vertices, got.vertices),
+          what + ": vertices differ");
+    check(Arrays.equals(edgeSet(expected), edgeSet(got)),
+          what + ": different edges");
+    for (int i = 0; i < got.edgeCount(); i++) {
+      check(g.weight(got.vertices[got.u[i]], got.vertices[got.v[i]]) ==
+            got.weight[i], what + ": wrong weight on edge " + i);
+    }
+    check(expected.totalWeight == got.totalWeight &&
+          expected.components == got.components,
+          what + ": weight " + got.totalWeight + " and " + got.components +
+          " components, expected " + expected.totalWeight + " and " +
+          expected.components);
+  }
+
+  /**
+   * edgeSet() returns the edges of r as sorted (smaller end, larger end)
+   * pairs packed into longs.
+   */
+  private static long[] edgeSet(MstResult r) {
+    long[] pairs = new long[r.edgeCount()];
+    for (int i = 0; i < pairs.length; i++) {
+      pairs[i] = ((long) Math.min(r.u[i], r.v[i]) << 32) |
+                 Math.max(r.u[i], r.v[i]);
+    }
+    Arrays.sort(pairs);
+    return pairs;
+  }
+
+  /**
+   * sameWeight() checks that "got" is a minimum spanning forest of g as good
+   * as "expected":  a forest of g's edges, with g's weights, and with as
+   * many edges, components and as much total weight as "expected".
+   */
+  static void sameWeight(WUGraph g, MstResult expected, MstResult got,
+                         String what) {
+    check(Arrays.equals(expected.vertices, got.vertices),
+          what + ": vertices differ");
+    check(got.edgeCount() == expected.edgeCount() &&
+          got.totalWeight == expected.totalWeight &&
+          got.components == expected.components,
+          what + ": " + got.edgeCount() + " edges of weight " +
+          got.totalWeight + " and " + got.components + " components, " +
+          "expected " + expected.edgeCount() + ", " + expected.totalWeight +
+          " and " + expected.components);
+    DisjointSets sets = new DisjointSets(got.vertices.length);
+    for (int i = 0; i < got.edgeCount(); i++) {
+      Object u = got.vertices[got.u[i]];
+      Object v = got.vertices[got.v[i]];
+      check(g.isEdge(u, v) && g.weight(u, v) == got.weight[i],
+            what + ": edge " + i + " is not in the graph");
+      check(sets.unionElements(got.u[i], got.v[i]),
+            what + ": edge " + i + " closes a cycle");
+    }
+  }
+
+  private static void filter(WUGraph[] graphs) {
+    for (WUGraph g : graphs) {
+      sameForest(Kruskal.minSpanForest(g),
+                 FilterKruskal.forest(EdgeList.of(g)),
+                 "FilterKruskal on " + describe(g));
+    }
+    System.out.println("filter: " + errors + " errors so far");
+  }
+
+  private static void heap(WUGraph[] graphs) {
+    for (WUGraph g : graphs) {
+      sameForest(Kruskal.minSpanForest(g),
+                 Kruskal.forest(EdgeList.of(g), Kruskal.Sort.HEAP, 0,
+                                KeySort.PARALLEL_CUTOFF),
+                 "Kruskal HEAP on " + describe(g));
+    }
+    System.out.println("heap: " + errors + " errors so far");
+  }
+
+  private static void prim(WUGraph[] graphs) {
+    for (WUGraph g : graphs) {
+      MstResult expected = Kruskal.minSpanForest(g);
+      for (Prim.Queue queue : Prim.Queue.values()) {
+        sameWeight(g, expected, Prim.forest(g.freeze(), queue),
+                   "Prim " + queue + " on " + describe(g));
+      }
+    }
+    System.out.println("prim: " + errors + " errors so far");
+  }
+
+  private static void boruvka(WUGraph[] graphs) {
+    for (WUGraph g : graphs) {
+      MstResult expected = Kruskal.minSpanForest(g);
+      for (int p = 1; p <= 4; p *= 2) {
+        sameEdges(g, expected, Boruvka.forest(EdgeList.of(g), p),
+                  "Boruvka at " + p + " threads on " + describe(g));
+      }
+    }
+    System.out.println("boruvka: " + errors + " errors so far");
+  }
+
+  private static void kkt(WUGraph[] graphs) {
+    for (WUGraph g : graphs) {
+      MstResult expected = Kruskal.minSpanForest(g);
+      for (long seed = 1; seed <= 5; seed++) {
+        sameEdges(g, expected, KargerKleinTarjan.forest(EdgeList.of(g), seed),
+                  "Karger-Klein-Tarjan with seed " + seed + " on " +
+                  describe(g));
+      }
+    }
+    System.out.println("kkt: " + errors + " errors so far");
+  }
+
+  private static void scratch(WUGraph[] graphs) {
+    int most = 0;
+    for (WUGraph g : graphs) {
+      most = Math.max(most, g.edgeCount());
+    }
+    long[] scratch = new long[most];
+    for (WUGraph g : graphs) {
+      MstResult expected = Kruskal.minSpanForest(g);
+      sameForest(expected, Kruskal.minSpanForest(g, scratch),
+                 "Kruskal with a shared scratch on " + describe(g));
+      sameForest(expected, Kruskal.minSpanForest(g.freeze(), scratch),
+                 "Kruskal on a snapshot with a shared scratch on " +
+                 describe(g));
+    }
+    WUGraph g = graphs[graphs.length - 1];
+    try {
+      Kruskal.minSpanForest(g, new long[g.edgeCount() - 1]);
+      check(false, "a short scratch was accepted");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+    System.out.println("scratch: " + errors + " errors so far");
+  }
+
+  /**
+   * thresholds() returns hand-made thresholds for "cores" processors.
+   */
+  private static MstThresholds thresholds(int cores) {
+    MstThresholds t = new MstThresholds();
+    t.cores = cores;
+    t.filterDegreeNarrow = 16;
+    t.filterDegreeWide = 8;
+    t.primDegree = 64;
+    t.arrayFill = 0.5;
+    t.parallelEdges = 100000;
+    return t;
+  }
+
+  private static void choose() {
+    MstThresholds t = thresholds(4);
+    long wide = 1L << 30;
+    long narrow = 100;
+    Object[][] cases = {
+      // n, m, weight range, threads, expected engine
+      { 100000, 200000, wide, 4, MstOptions.Engine.BORUVKA },
+      { 100000, 200000, wide, 8, MstOptions.Engine.BORUVKA },
+      { 100000, 200000, wide, 2, MstOptions.Engine.KRUSKAL },
+      { 100000, 200000, wide, 1, MstOptions.Engine.KRUSKAL },
+      { 100000, 99999, wide, 4, MstOptions.Engine.KRUSKAL },
+      { 100, 3000, wide, 1, MstOptions.Engine.PRIM_ARRAY },
+      { 1000, 70000, wide, 1, MstOptions.Engine.PRIM },
+      { 1000, 10000, wide, 1, MstOptions.Engine.FILTER_KRUSKAL },
+      { 1000, 10000, narrow, 1, MstOptions.Engine.KRUSKAL },
+      { 1000, 20000, narrow, 1, MstOptions.Engine.FILTER_KRUSKAL },
+      { 1000, 5000, wide, 1, MstOptions.Engine.KRUSKAL },
+      { 1, 0, 0L, 1, MstOptions.Engine.KRUSKAL }
+    };
+    for (Object[] c : cases) {
+      int n = (Integer) c[0];
+      int m = (Integer) c[1];
+      long range = (Long) c[2];
+      int threads = (Integer) c[3];
+      MstOptions.Engine got = Mst.choose(n, m, range, threads, t);
+      check(got == c[4], "choose(" + n + ", " + m + ", " + range + ", " +
+            threads + ") gave " + got + ", expected " + c[4]);
+    }
+    System.out.println("choose: " + errors + " errors so far");
+  }
+
+  /**
+   * sameThresholds() returns true if a and b hold the same values.
+   */
+  private static boolean sameThresholds(MstThresholds a, MstThresholds b) {
+    return a != null && b != null && a.cores == b.cores &&
+           a.filterDegreeNarrow == b.filterDegreeNarrow &&
+           a.filterDegreeWide == b.filterDegreeWide &&
+           a.primDegree == b.primDegree && a.arrayFill == b.arrayFill &&
+           a.parallelEdges == b.parallelEdges;
+  }
+
+  private static void write(File file, String text) throws IOException {
+    try (Writer out = new FileWriter(file)) {
+      out.write(text);
+    }
+  }
+
+  private static void thresholds() throws IOException {
+    int cores = Runtime.getRuntime().availableProcessors();
+    File file = File.createTempFile("MstTest", ".properties");
+    File dir = File.createTempFile("MstTest", ".dir");
+    try {
+      // Round trip, including infinite thresholds.
+      MstThresholds t = thresholds(cores);
+      t.primDegree = Double.POSITIVE_INFINITY;
+      t.parallelEdges = Long.MAX_VALUE;
+      check(t.save(file), "save() failed");
+      check(sameThresholds(t, MstThresholds.load(file, cores)),
+            "load() did not give back what save() wrote");
+      check(MstThresholds.load(file, cores + 1) == null,
+            "load() accepted another processor count");
+      check(MstThresholds.load(null, cores) == null, "load(null)");
+
+      write(file, "version=0\ncores=" + cores + "\n");
+      check(MstThresholds.load(file, cores) == null,
+            "load() accepted another version");
+      write(file, "version=1\ncores=" + cores + "\nprim.degree=lots\n");
+      check(MstThresholds.load(file, cores) == null,
+            "load() accepted a damaged file");
+
+      // A damaged file is recalibrated and rewritten, once.
+      long start = System.nanoTime();
+      MstOptions options = new MstOptions().calibrationFile(file);
+      MstThresholds measured = Mst.thresholds(options);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      check(measured != null && measured.cores == cores,
+            "no thresholds measured");
+      check(sameThresholds(measured, MstThresholds.load(file, cores)),
+            "calibration did not rewrite the file");
+      check(Mst.thresholds(options) == measured,
+            "thresholds not kept in memory");
+
+      // Calibration off:  the defaults, for a file that does not exist.
+      File missing = new File(dir.getPath() + ".missing");
+      MstOptions off = new MstOptions().calibrationFile(missing)
+                                       .calibrate(false);
+      check(sameThresholds(Mst.thresholds(off),
+                           MstThresholds.defaults(cores)),
+            "calibrate(false) did not give the defaults");
+      check(!missing.exists(), "calibrate(false) wrote a file");
+
+      // A file that cannot be written:  calibrate once, then keep them.
+      check(dir.delete() && dir.mkdir(), "cannot make " + dir);
+      check(!t.save(dir), "save() into a directory succeeded");
+      MstOptions unwritable = new MstOptions().calibrationFile(dir);
+      MstThresholds once = Mst.thresholds(unwritable);
+      check(once != null && Mst.thresholds(unwritable) == once,
+            "an unwritable file caused another calibration");
+      System.out.println("thresholds: calibration took " +
+                         Math.round(seconds * 10) / 10.0 + "s, " + errors +
+                         " errors so far");
+    } finally {
+      file.delete();
+      dir.delete();
+    }
+  }
+
+  private static void compute(WUGraph[] graphs) {
+    MstOptions options = new MstOptions().calibrationFile(null)
+                                         .calibrate(false);
+    for (WUGraph g : graphs) {
+      MstResult expected = Kruskal.minSpanForest(g);
+      for (MstOptions.Engine engine : MstOptions.Engine.values()) {
+        options.engine(engine);
+        MstResult got = Mst.computeForest(g, options);
+        check(got.totalWeight == expected.totalWeight &&
+              got.components == expected.components,
+              "Mst " + engine + " on " + describe(g) + ": weight " +
+              got.totalWeight + ", expected " + expected.totalWeight);
+        check(engine == MstOptions.Engine.AUTO ||
+              Mst.choose(g, options) == engine,
+              "Mst.choose() ignored " + engine);
+      }
+    }
+    System.out.println("compute: " + errors + " errors so far");
+  }
+
+  public static void main(String[] args) throws IOException {
+    WUGraph[] graphs = graphs();
+    filter(graphs);
+    heap(graphs);
+    prim(graphs);
+    boruvka(graphs);
+    kkt(graphs);
+    scratch(graphs);
+    choose();
+    thresholds();
+    compute(graphs);
+    if (errors > 0) {
+      System.out.println("MST engines FAILED");
+      System.exit(1);
+    }
+    System.out.println("MST engines passed");
+  }
+}
@@ -0,0 +1,255 @@
+/* MstThresholds.java */
+
+package graphalg;
+
+import graph.*;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * An MstThresholds object holds the graph statistics at which Mst.compute()
+ * switches from one engine to another.  The values can be measured on the
+ * host by calibrate(), and saved to and loaded from a properties file.
+ *
+ * Degrees are edges per vertex (|E| / |V|); fill is the fraction of all
+ * vertex pairs that are edges.  A threshold of infinity (or Long.MAX_VALUE)
+ * means the engine never won during calibration.
+ */
+class MstThresholds {
+
+  /** Changes whenever the meaning of a key changes. */
+  private static final String VERSION = "1";
+
+  /** Weight ranges below this are "narrow":  two radix passes or fewer. */
+  static final long NARROW_RANGE = 1 << 16;
+
+  /** Processors available when the thresholds were measured. */
+  int cores;
+
+  /** Degree from which FilterKruskal beats Kruskal, by weight range. */
+  double filterDegreeNarrow;
+  double filterDegreeWide;
+
+  /** Degree from which Prim beats both Kruskal engines. */
+  double primDegree;
+
+  /** Fill from which Prim's array queue beats its heap. */
+  double arrayFill;
+
+  /**
+   * Edge count from which Boruvka on all cores beats Kruskal.  It says
+   * nothing about fewer threads, so Mst.choose() does not pick Boruvka for
+   * fewer than "cores" threads.
+   */
+  long parallelEdges;
+
+  /**
+   * defaults() returns thresholds that suit a typical machine, for use when
+   * calibration is turned off.
+   */
+  static MstThresholds defaults(int cores) {
+    MstThresholds t = new MstThresholds();
+    t.cores = cores;
+    t.filterDegreeNarrow = 16;
+    t.filterDegreeWide = 8;
+    t.primDegree = 64;
+    t.arrayFill = 0.5;
+    t.parallelEdges = cores > 1 ? 1 << 20 : Long.MAX_VALUE;
+    return t;
+  }
+
+  /**
+   * load() reads thresholds from file.  Returns null if the file is
+   * missing, unreadable, from another version, or was measured with a
+   * different number of processors.
+   */
+  static MstThresholds load(File file, int cores) {
+    if (file == null || !file.isFile()) {
+      return null;
+    }
+    Properties p = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      p.load(in);
+      if (!VERSION.equals(p.getProperty("version")) ||
+          Integer.parseInt(p.getProperty("cores")) != cores) {
+        return null;
+      }
+      MstThresholds t = new MstThresholds();
+      t.cores = cores;
+      t.filterDegreeNarrow =
+          Double.parseDouble(p.getProperty("filter.degree.narrow"));
+      t.filterDegreeWide =
+          Double.parseDouble(p.getProperty("filter.degree.wide"));
+      t.primDegree = Double.parseDouble(p.getProperty("prim.degree"));
+      t.arrayFill = Double.parseDouble(p.getProperty("array.fill"));
+      t.parallelEdges = Long.parseLong(p.getProperty("parallel.edges"));
+      return t;
+    } catch (IOException | RuntimeException e) {
+      // A damaged file is treated as missing, and recalibrated.
+      return null;
+    }
+  }
+
+  /**
+   * save() writes the thresholds to file.  Returns false if it could not.
+   */
+  boolean save(File file) {
+    Properties p = new Properties();
+    p.setProperty("version", VERSION);
+    p.setProperty("cores", Integer.toString(cores));
+    p.setProperty("filter.degree.narrow", Double.toString(filterDegreeNarrow));
+    p.setProperty("filter.degree.wide", Double.toString(filterDegreeWide));
+    p.setProperty("prim.degree", Double.toString(primDegree));
+    p.setProperty("array.fill", Double.toString(arrayFill));
+    p.setProperty("parallel.edges", Long.toString(parallelEdges));
+    try (OutputStream out = new FileOutputStream(file)) {
+      p.store(out, "MST engine thresholds measured by graphalg.Mst");
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** Vertex count and degrees of the graphs that degree thresholds use. */
+  private static final int CAL_VERTICES = 4000;
+  private static final int[] CAL_DEGREES = { 2, 4, 8, 16, 32, 64 };
+
+  /** Vertex count and fills of the graphs that the fill threshold uses. */
+  private static final int CAL_DENSE_VERTICES = 1000;
+  private static final double[] CAL_FILLS = { 0.05, 0.1, 0.25, 0.5, 1.0 };
+
+  /** Edge counts of the graphs that the parallel threshold uses. */
+  private static final int[] CAL_EDGES = { 1 << 15, 1 << 17, 1 << 19 };
+
+  /**
+   * calibrate() times the engines on small random graphs and returns the
+   * thresholds at which each starts to win.  It takes a few seconds.
+   */
+  static MstThresholds calibrate(int cores) {
+    Random random = new Random(1);
+    MstThresholds t = new MstThresholds();
+    t.cores = cores;
+
+    int d = CAL_DEGREES.length;
+    double[] kruskal = new double[d];
+    double[] filter = new double[d];
+    double[] prim = new double[d];
+    double[] best = new double[d];
+
+    // Narrow weights: Kruskal against FilterKruskal.
+    for (int i = 0; i < d; i++) {
+      WUGraph g = randomGraph(CAL_VERTICES, CAL_DEGREES[i] * CAL_VERTICES,
+                              256, random);
+      kruskal[i] = time(g, MstOptions.Engine.KRUSKAL);
+      filter[i] = time(g, MstOptions.Engine.FILTER_KRUSKAL);
+    }
+    t.filterDegreeNarrow = crossover(CAL_DEGREES, filter, kruskal);
+
+    // Wide weights: Kruskal, FilterKruskal and Prim.
+    for (int i = 0; i < d; i++) {
+      WUGraph g = randomGraph(CAL_VERTICES, CAL_DEGREES[i] * CAL_VERTICES,
+                              1 << 30, random);
+      kruskal[i] = time(g, MstOptions.Engine.KRUSKAL);
+      filter[i] = time(g, MstOptions.Engine.FILTER_KRUSKAL);
+      prim[i] = time(g, MstOptions.Engine.PRIM);
+      best[i] = Math.min(kruskal[i], filter[i]);
+    }
+    t.filterDegreeWide = crossover(CAL_DEGREES, filter, kruskal);
+    t.primDegree = crossover(CAL_DEGREES, prim, best);
+
+    // Nearly complete graphs: Prim's array queue against its heap.
+    int f = CAL_FILLS.length;
+    int[] fillEdges = new int[f];
+    double[] array = new double[f];
+    double[] heap = new double[f];
+    long pairs = (long) CAL_DENSE_VERTICES * (CAL_DENSE_VERTICES - 1) / 2;
+    for (int i = 0; i < f; i++) {
+      WUGraph g = randomGraph(CAL_DENSE_VERTICES, (int) (CAL_FILLS[i] * pairs),
+                              1 << 30, random);
+      // Repeated random pairs make the real fill a little lower.
+      fillEdges[i] = g.edgeCount();
+      array[i] = time(g, MstOptions.Engine.PRIM_ARRAY);
+      heap[i] = time(g, MstOptions.Engine.PRIM);
+    }
+    double fillAt = crossover(fillEdges, array, heap);
+    t.arrayFill = Double.isInfinite(fillAt) ? fillAt : fillAt / pairs;
+
+    // Parallel Boruvka against Kruskal, if there is more than one core.
+    t.parallelEdges = Long.MAX_VALUE;
+    if (cores > 1) {
+      int e = CAL_EDGES.length;
+      double[] boruvka = new double[e];
+      double[] serial = new double[e];
+      for (int i = 0; i < e; i++) {
+        WUGraph g = randomGraph(CAL_EDGES[i] / 8, CAL_EDGES[i], 1 << 30,
+                                random);
+        boruvka[i] = time(g, MstOptions.Engine.BORUVKA);
+        serial[i] = time(g, MstOptions.Engine.KRUSKAL);
+      }
+      double at = crossover(CAL_EDGES, boruvka, serial);
+      if (!Double.isInfinite(at)) {
+        t.parallelEdges = (long) at;
+      }
+    }
+    return t;
+  }
+
+  /**
+   * crossover() returns the smallest x[i] from which "challenger" is faster
+   * than "incumbent" at every larger x too, or infinity if it never is.
+   */
+  private static double crossover(int[] x, double[] challenger,
+                                  double[] incumbent) {
+    double at = Double.POSITIVE_INFINITY;
+    for (int i = x.length - 1; i >= 0; i--) {
+      if (challenger[i] >= incumbent[i]) {
+        break;
+      }
+      at = x[i];
+    }
+    return at;
+  }
+
+  /**
+   * time() returns the best of three timed runs of engine on g, after one
+   * untimed run to warm up.  Parallel engines run in the common pool, as
+   * they do for compute() with the default options.
+   */
+  private static double time(WUGraph g, MstOptions.Engine engine) {
+    Mst.run(g, engine, 0);
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r < 3; r++) {
+      long t0 = System.nanoTime();
+      Mst.run(g, engine, 0);
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    return best;
+  }
+
+  /**
+   * randomGraph() returns a graph on n vertices with a path through every
+   * vertex and about m edges in all, with weights in [0, range).
+   */
+  private static WUGraph randomGraph(int n, int m, int range, Random random) {
+    Object[] verts = new Object[n];
+    for (int i = 0; i < n; i++) {
+      verts[i] = Integer.valueOf(i);
+    }
+    WUGraph.Builder builder = new WUGraph.Builder(n, Math.max(m, n));
+    builder.addVertices(verts);
+    for (int i = 1; i < n; i++) {
+      builder.addEdge(verts[i - 1], verts[i], random.nextInt(range));
+    }
+    for (int i = n - 1; i < m; i++) {
+      builder.addEdge(verts[random.nextInt(n)], verts[random.nextInt(n)],
+                      random.nextInt(range));
+    }
+    return builder.build();
+  }
+}
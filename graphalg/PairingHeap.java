@@ -0,0 +1,134 @@
+/* PairingHeap.java */
+
+package graphalg;
+
+/**
+ * The PairingHeap class is a pairing heap of vertices, stored in int arrays
+ * indexed by vertex rather than in node objects.  Each vertex's children
+ * form a list linked through "next"; "prev" points to the left sibling, or
+ * to the parent for a first child.
+ *
+ * Lowering a key cuts the vertex's subtree out and melds it with the root in
+ * O(1); poll() removes the root and melds its children in two passes
+ * (pairs left to right, then the pairs right to left).
+ *
+ * Running time: offer() O(1), poll() O(log n) amortized.
+ */
+class PairingHeap implements VertexQueue {
+
+  private static final int NONE = -1;
+
+  private final int[] key;
+  private final int[] child;    // first child, or NONE
+  private final int[] next;     // right sibling, or NONE
+  private final int[] prev;     // left sibling, or parent if first child
+  private final boolean[] queued;
+  private int root;
+
+  /** Work space for poll()'s first pass. */
+  private final int[] pairs;
+
+  /**
+   * Construct an empty heap for vertices 0..n-1.
+   */
+  PairingHeap(int n) {
+    key = new int[n];
+    child = new int[n];
+    next = new int[n];
+    prev = new int[n];
+    queued = new boolean[n];
+    root = NONE;
+    pairs = new int[n];
+  }
+
+  public boolean isEmpty() {
+    return root == NONE;
+  }
+
+  public boolean offer(int v, int k) {
+    if (!queued[v]) {
+      queued[v] = true;
+      key[v] = k;
+      child[v] = NONE;
+      next[v] = NONE;
+      prev[v] = NONE;
+      root = (root == NONE) ? v : meld(root, v);
+      return true;
+    }
+    if (k >= key[v]) {
+      return false;
+    }
+    key[v] = k;
+    if (v != root) {
+      // Cut v's subtree out of its sibling list and meld it with the root.
+      int p = prev[v];
+      if (child[p] == v) {
+        child[p] = next[v];
+      } else {
+        next[p] = next[v];
+      }
+      if (next[v] != NONE) {
+        prev[next[v]] = p;
+      }
+      next[v] = NONE;
+      prev[v] = NONE;
+      root = meld(root, v);
+    }
+    return true;
+  }
+
+  public int poll() {
+    int min = root;
+    queued[min] = false;
+
+    // First pass: meld the children in pairs, left to right.
+    int count = 0;
+    int c = child[min];
+    while (c != NONE) {
+      int a = c;
+      int b = next[a];
+      if (b == NONE) {
+        prev[a] = NONE;
+        pairs[count++] = a;
+        break;
+      }
+      c = next[b];
+      next[a] = NONE;
+      prev[a] = NONE;
+      next[b] = NONE;
+      prev[b] = NONE;
+      pairs[count++] = meld(a, b);
+    }
+
+    // Second pass: meld the pairs into one tree, right to left.
+    root = NONE;
+    if (count > 0) {
+      root = pairs[count - 1];
+      for (int i = count - 2; i >= 0; i--) {
+        root = meld(pairs[i], root);
+      }
+    }
+    return min;
+  }
+
+  /**
+   * meld() joins two roots, making the one with the larger key the first
+   * child of the other, and returns the new root.  Both roots must have no
+   * siblings.
+   */
+  private int meld(int a, int b) {
+    if (key[b] < key[a]) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    int first = child[a];
+    next[b] = first;
+    if (first != NONE) {
+      prev[first] = b;
+    }
+    prev[b] = a;
+    child[a] = b;
+    return a;
+  }
+}
@@ -0,0 +1,141 @@
+/* Prim.java */
+
+package graphalg;
+
+import graph.*;
+
+/**
+ * The Prim class computes a minimum spanning forest with Prim's algorithm:
+ * grow a tree from a start vertex, always adding the lightest edge from the
+ * tree to a vertex outside it, and start a new tree from the next unreached
+ * vertex when one runs out.  It works on a CsrGraph's arrays; a WUGraph is
+ * frozen first.
+ *
+ * The priority queue is chosen with a Queue value:
+ *  - BINARY:  indexed binary heap; O(m log n).
+ *  - DARY:    indexed 4-ary heap; also O(m log n), but half as deep as
+ *             BINARY, so decrease-key is cheaper and poll dearer.
+ *  - PAIRING: pairing heap; O(1) offer, O(log n) amortized poll.
+ *  - ARRAY:   unsorted array scanned on every poll; O(n^2 + m), the best
+ *             choice when the graph is nearly complete.
+ *
+ * The forest always has the same total weight as Kruskal.minSpanTree()'s.
+ * When several edges have equal weights the two may pick different ones.
+ */
+public class Prim {
+
+  /** Which priority queue Prim's algorithm uses. */
+  public enum Queue { BINARY, DARY, PAIRING, ARRAY }
+
+  /** Arity of the DARY heap. */
+  private static final int DARY_ARITY = 4;
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g, using a binary heap.  The original WUGraph g is NOT
+   * changed.
+   *
+   * Running time: O(|V| + |E| log |V|).
+   */
+  public static WUGraph minSpanTree(WUGraph g) {
+    return minSpanTree(g.freeze(), Queue.BINARY);
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g, using the given priority queue.  g is frozen into a
+   * CsrGraph first, in O(|V| + |E|) time.
+   */
+  public static WUGraph minSpanTree(WUGraph g, Queue queue) {
+    return minSpanTree(g.freeze(), queue);
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the frozen graph g, using a binary heap.
+   *
+   * Running time: O(|V| + |E| log |V|).
+   */
+  public static WUGraph minSpanTree(CsrGraph g) {
+    return minSpanTree(g, Queue.BINARY);
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the frozen graph g, using the given priority queue.
+   *
+   * Running time: see the class comment.
+   */
+  public static WUGraph minSpanTree(CsrGraph g, Queue queue) {
+    return forest(g, queue).toGraph();
+  }
+
+  /**
+   * forest() runs Prim's algorithm on g and returns the minimum spanning
+   * forest.
+   */
+  static MstResult forest(CsrGraph g, Queue queue) {
+    int n = g.vertexCount();
+    VertexQueue q = newQueue(queue, n);
+
+    boolean[] done = new boolean[n];
+    int[] parent = new int[n];      // tree neighbor that set v's key
+    int[] parentWeight = new int[n];
+    int[] tu = new int[Math.max(n - 1, 0)];
+    int[] tv = new int[tu.length];
+    int[] tw = new int[tu.length];
+    int treeSize = 0;
+
+    for (int start = 0; start < n; start++) {
+      if (done[start]) {
+        continue;
+      }
+      done[start] = true;
+      relax(g, start, q, done, parent, parentWeight);
+      while (!q.isEmpty()) {
+        int v = q.poll();
+        done[v] = true;
+        tu[treeSize] = parent[v];
+        tv[treeSize] = v;
+        tw[treeSize] = parentWeight[v];
+        treeSize++;
+        relax(g, v, q, done, parent, parentWeight);
+      }
+    }
+
+    return new MstResult(g.getVertices(), tu, tv, tw, treeSize);
+  }
+
+  /**
+   * relax() offers every neighbor of v outside the tree to the queue, keyed
+   * by the weight of its edge to v, and records v as the parent of each
+   * neighbor whose key dropped.
+   */
+  private static void relax(CsrGraph g, int v, VertexQueue q, boolean[] done,
+                            int[] parent, int[] parentWeight) {
+    int end = g.endSlot(v);
+    for (int s = g.firstSlot(v); s < end; s++) {
+      int t = g.target(s);
+      if (!done[t]) {
+        int w = g.weight(s);
+        if (q.offer(t, w)) {
+          parent[t] = v;
+          parentWeight[t] = w;
+        }
+      }
+    }
+  }
+
+  private static VertexQueue newQueue(Queue queue, int n) {
+    switch (queue) {
+    case DARY:
+      return new DaryHeap(n, DARY_ARITY);
+    case PAIRING:
+      return new PairingHeap(n);
+    case ARRAY:
+      return new ArrayQueue(n);
+    default:
+      return new DaryHeap(n, 2);
+    }
+  }
+}
@@ -0,0 +1,29 @@
+/* VertexQueue.java */
+
+package graphalg;
+
+/**
+ * A VertexQueue is a min-priority queue of vertices 0..n-1 keyed by int,
+ * with decrease-key, as Prim's algorithm needs.  Each vertex is in the queue
+ * at most once at a time.
+ */
+interface VertexQueue {
+
+  /**
+   * isEmpty() returns true if no vertex is queued.
+   */
+  boolean isEmpty();
+
+  /**
+   * offer() queues vertex v with the given key if v is not queued, or lowers
+   * v's key if v is queued with a larger key.  Returns true if v's key was
+   * set, false if v was already queued with a key at most "key".
+   */
+  boolean offer(int v, int key);
+
+  /**
+   * poll() removes and returns a queued vertex with the smallest key.  The
+   * queue must not be empty.
+   */
+  int poll();
+}
@@ -0,0 +1,137 @@
+/* ConcurrentDisjointSets.java */
+
+package set;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ *  A disjoint sets ADT that many threads may use at once, after Anderson and
+ *  Woll, and Jayanti and Tarjan.  Each element holds its parent in an
+ *  AtomicIntegerArray; a root is its own parent.
+ *
+ *  find() never blocks:  it halves the path as it walks, pointing each
+ *  element at its grandparent with a compare-and-set that is simply skipped
+ *  if another thread got there first.  unionElements() links one root under
+ *  the other with a compare-and-set, and starts over from find() if the root
+ *  changed in the meantime, so some thread always makes progress.
+ *
+ *  Roots are linked by a fixed pseudo-random order of the elements (a hash
+ *  of the index) rather than by size, since sizes cannot be updated together
+ *  with the link in one compare-and-set.  Randomized linking keeps trees
+ *  shallow in expectation, as union by size does.
+ *
+ *  Every operation is linearizable:  once unionElements(a, b) returns, every
+ *  thread sees a and b together.
+ *
+ *  Elements are represented by ints, numbered from zero.
+ **/
+
+public class ConcurrentDisjointSets {
+
+  private final AtomicIntegerArray parent;
+
+  /**
+   *  Construct a disjoint sets object.
+   *
+   *  @param numElements the initial number of elements--also the initial
+   *  number of disjoint sets, since every element is initially in its own set.
+   **/
+  public ConcurrentDisjointSets(int numElements) {
+    parent = new AtomicIntegerArray(numElements);
+    for (int i = 0; i < numElements; i++) {
+      parent.set(i, i);
+    }
+  }
+
+  /**
+   *  size() returns the number of elements.
+   **/
+  public int size() {
+    return parent.length();
+  }
+
+  /**
+   *  find() finds the (int) name of the set containing a given element.
+   *  Performs path halving along the way.  If other threads are uniting
+   *  sets, the answer may be out of date as soon as it is returned; use
+   *  sameSet() to compare two elements.
+   *
+   *  @param x the element sought.
+   *  @return the set containing x.
+   **/
+  public int find(int x) {
+    while (true) {
+      int p = parent.get(x);
+      if (p == x) {
+        return x;
+      }
+      int gp = parent.get(p);
+      if (p != gp) {
+        parent.compareAndSet(x, p, gp);          // point x at its grandparent
+      }
+      x = gp;
+    }
+  }
+
+  /**
+   *  sameSet() returns true if a and b are in the same set.  The answer is
+   *  correct at some instant during the call.
+   *
+   *  @param a an element.
+   *  @param b another element.
+   *  @return true if a and b are in the same set.
+   **/
+  public boolean sameSet(int a, int b) {
+    while (true) {
+      int root1 = find(a);
+      int root2 = find(b);
+      if (root1 == root2) {
+        return true;
+      }
+      // Different roots, and root1 still a root:  they were apart just now.
+      if (parent.get(root1) == root1) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   *  unionElements() unites the sets containing elements a and b.  Returns
+   *  true if this call merged two sets, or false if they were already
+   *  together.  When several threads unite the same two sets at once,
+   *  exactly one of them returns true.
+   *
+   *  @param a an element of the first set.
+   *  @param b an element of the other set.
+   *  @return true if this call merged two sets.
+   **/
+  public boolean unionElements(int a, int b) {
+    while (true) {
+      int root1 = find(a);
+      int root2 = find(b);
+      if (root1 == root2) {
+        return false;
+      }
+      // The root that comes first in the fixed order goes under the other.
+      if (order(root1) > order(root2)) {
+        int t = root1;
+        root1 = root2;
+        root2 = t;
+      }
+      if (parent.compareAndSet(root1, root1, root2)) {
+        return true;
+      }
+      // root1 was linked elsewhere first; find the new roots and retry.
+    }
+  }
+
+  /**
+   *  order() returns the place of element x in the linking order, a
+   *  bijective hash of x so that no two elements tie.
+   **/
+  private static int order(int x) {
+    x = (x ^ (x >>> 16)) * 0x45d9f3b;
+    x = (x ^ (x >>> 16)) * 0x45d9f3b;
+    return x ^ (x >>> 16);
+  }
+}
@@ -4,12 +4,14 @@ package set;
 
 /**
  *  A disjoint sets ADT.  Performs union-by-size and path compression.
- *  Implemented using arrays.  There is no error checking whatsoever.
- *  By adding your own error-checking, you might save yourself a lot of time
- *  finding bugs in your application code for Project 3 and Homework 9.
- *  Without error-checking, expect bad things to happen if you try to unite
- *  two elements that are not roots of their respective sets, or are not
- *  distinct.
+ *  Implemented using arrays.  union() does no error checking whatsoever:
+ *  expect bad things to happen if you try to unite two elements that are not
+ *  roots of their respective sets, or are not distinct.  unionElements()
+ *  takes any two elements and finds their roots itself.
+ *
+ *  find() is iterative and compresses paths by halving (every element on the
+ *  path is pointed at its grandparent), so it uses constant stack space no
+ *  matter how deep a tree gets.
  *
  *  Elements are represented by ints, numbered from zero.
  **/
@@ -50,21 +52,42 @@ public class DisjointSets {
     }
   }
 
+  /**
+   *  unionElements() unites the sets containing elements a and b, which need
+   *  not be roots.  Returns true if they were in different sets, false (and
+   *  changes nothing but compressed paths) if they were already together.
+   *
+   *  @param a an element of the first set.
+   *  @param b an element of the other set.
+   *  @return true if a merge happened.
+   **/
+  public boolean unionElements(int a, int b) {
+    int root1 = find(a);
+    int root2 = find(b);
+    if (root1 == root2) {
+      return false;
+    }
+    union(root1, root2);
+    return true;
+  }
+
   /**
    *  find() finds the (int) name of the set containing a given element.
-   *  Performs path compression along the way.
+   *  Performs path halving along the way.
    *
    *  @param x the element sought.
    *  @return the set containing x.
    **/
   public int find(int x) {
-    if (array[x] < 0) {
-      return x;                         // x is the root of the tree; return it
-    } else {
-      // Find out who the root is; compress path by making the root x's parent.
-      array[x] = find(array[x]);
-      return array[x];                                       // Return the root
+    while (array[x] >= 0) {
+      int parent = array[x];
+      if (array[parent] < 0) {
+        return parent;                      // parent is the root; return it
+      }
+      array[x] = array[parent];            // point x at its grandparent
+      x = array[x];
     }
+    return x;
   }
 
   /**
@@ -0,0 +1,194 @@
+/* GrowableDisjointSets.java */
+
+package set;
+
+import java.util.Arrays;
+
+/**
+ *  A disjoint sets ADT whose elements arrive one at a time.  makeSet() adds
+ *  a new element, in a set of its own, and returns its number.  Otherwise it
+ *  works like DisjointSets:  union-by-size, and find() with path halving.
+ *
+ *  The parent array is stored in chunks of CHUNK_SIZE ints.  When the last
+ *  chunk is full, makeSet() allocates one more; only the short directory of
+ *  chunks is ever copied, never the elements, so no makeSet() call takes
+ *  longer than allocating one chunk, and growth is amortized O(1).
+ *
+ *  Elements are represented by ints, numbered from zero in the order
+ *  makeSet() created them.
+ **/
+
+public class GrowableDisjointSets {
+
+  /** Elements per chunk:  2^16, so a chunk is 256 KB. */
+  private static final int CHUNK_BITS = 16;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /** chunks[c][i] is the entry of element c * CHUNK_SIZE + i. */
+  private int[][] chunks;
+  private int chunkCount;
+  private int size;
+
+  /**
+   *  Construct an empty disjoint sets object.
+   **/
+  public GrowableDisjointSets() {
+    this(0);
+  }
+
+  /**
+   *  Construct a disjoint sets object with numElements elements, each in a
+   *  set of its own, numbered 0..numElements-1.
+   *
+   *  @param numElements the initial number of elements.
+   **/
+  public GrowableDisjointSets(int numElements) {
+    chunks = new int[Math.max(1, (numElements + CHUNK_MASK) >>> CHUNK_BITS)][];
+    chunkCount = 0;
+    size = 0;
+    for (int i = 0; i < numElements; i++) {
+      makeSet();
+    }
+  }
+
+  /**
+   *  makeSet() adds a new element in a set of its own.
+   *
+   *  Running time: O(1) amortized; at worst, allocating one chunk.
+   *
+   *  @return the new element.
+   **/
+  public int makeSet() {
+    if (size == Integer.MAX_VALUE) {
+      throw new IllegalStateException("too many elements");
+    }
+    if (size == (long) chunkCount << CHUNK_BITS) {
+      if (chunkCount == chunks.length) {
+        chunks = Arrays.copyOf(chunks, 2 * chunks.length);
+      }
+      chunks[chunkCount++] = new int[CHUNK_SIZE];
+    }
+    int x = size++;
+    chunks[x >>> CHUNK_BITS][x & CHUNK_MASK] = -1;
+    return x;
+  }
+
+  /**
+   *  size() returns the number of elements made so far.
+   **/
+  public int size() {
+    return size;
+  }
+
+  private int get(int x) {
+    return chunks[x >>> CHUNK_BITS][x & CHUNK_MASK];
+  }
+
+  private void set(int x, int value) {
+    chunks[x >>> CHUNK_BITS][x & CHUNK_MASK] = value;
+  }
+
+  /**
+   *  union() unites two disjoint sets into a single set.  A union-by-size
+   *  heuristic is used to choose the new root.  This method will corrupt
+   *  the data structure if root1 and root2 are not roots of their respective
+   *  sets, or if they're identical.
+   *
+   *  @param root1 the root of the first set.
+   *  @param root2 the root of the other set.
+   **/
+  public void union(int root1, int root2) {
+    int size1 = get(root1);
+    int size2 = get(root2);
+    if (size2 < size1) {                               // root2 has larger tree
+      set(root2, size2 + size1);
+      set(root1, root2);
+    } else {                                  // root1 has equal or larger tree
+      set(root1, size1 + size2);
+      set(root2, root1);
+    }
+  }
+
+  /**
+   *  unionElements() unites the sets containing elements a and b, which need
+   *  not be roots.  Returns true if they were in different sets.
+   *
+   *  @param a an element of the first set.
+   *  @param b an element of the other set.
+   *  @return true if a merge happened.
+   **/
+  public boolean unionElements(int a, int b) {
+    int root1 = find(a);
+    int root2 = find(b);
+    if (root1 == root2) {
+      return false;
+    }
+    union(root1, root2);
+    return true;
+  }
+
+  /**
+   *  find() finds the (int) name of the set containing a given element.
+   *  Performs path halving along the way.
+   *
+   *  @param x the element sought.
+   *  @return the set containing x.
+   **/
+  public int find(int x) {
+    int parent = get(x);
+    while (parent >= 0) {
+      int grandparent = get(parent);
+      if (grandparent < 0) {
+        return parent;                      // parent is the root; return it
+      }
+      set(x, grandparent);                 // point x at its grandparent
+      x = grandparent;
+      parent = get(x);
+    }
+    return x;
+  }
+
+  /**
+   *  main() is test code.  Elements are made one at a time, across several
+   *  chunks, and united in blocks of NumInSameSet; every element must end up
+   *  in the same set as the first element of its block, and neighboring
+   *  blocks must stay apart.
+   **/
+  public static void main(String[] args) {
+    int NumElements = 3 * CHUNK_SIZE + 5;
+    int NumInSameSet = 1 << 10;
+
+    GrowableDisjointSets s = new GrowableDisjointSets();
+    for (int i = 0; i < NumElements; i++) {
+      if (s.makeSet() != i) {
+        System.out.println("makeSet() returned the wrong element.");
+        System.exit(1);
+      }
+      int first = i - i % NumInSameSet;
+      if (i != first) {
+        s.unionElements(i, first + (i * 7) % (i - first));
+      }
+    }
+
+    int errors = 0;
+    int prevRoot = -1;
+    for (int i = 0; i < NumElements; i++) {
+      int first = i - i % NumInSameSet;
+      int root = s.find(i);
+      if (root != s.find(first)) {
+        errors++;
+      }
+      if (i == first) {
+        if (root == prevRoot) {
+          errors++;
+        }
+        prevRoot = root;
+      }
+    }
+    System.out.println(s.size() + " elements, " + errors + " errors");
+    if (errors > 0) {
+      System.exit(1);
+    }
+  }
+}
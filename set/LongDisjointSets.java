@@ -0,0 +1,299 @@
+/* LongDisjointSets.java */
+
+package set;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ *  A disjoint sets ADT for more elements than an int can number, kept
+ *  outside the Java heap.  Performs union-by-size and path halving, like
+ *  DisjointSets, but elements are longs and the entries live in a file
+ *  mapped into memory--a deleted temporary file, unless the caller names
+ *  one--so the heap holds only a short array of buffer references however
+ *  many elements there are.
+ *
+ *  Entries are stored one long per element, in chunks of CHUNK_ELEMENTS
+ *  (so that no buffer exceeds the 2GB a ByteBuffer can address).  An entry
+ *  e > 0 means the parent is e - 1; an entry e <= 0 marks a root whose set
+ *  has 1 - e elements.  Fresh memory reads as zero, so every element starts
+ *  as a set of its own with no initializing pass over the entries, and a
+ *  new file stays sparse until it is written.
+ *
+ *  The sets hold their file mapping until close() is called; they must not
+ *  be used afterward.
+ *
+ *  Elements are represented by longs, numbered from zero.
+ **/
+
+public class LongDisjointSets implements AutoCloseable {
+
+  /** Elements per chunk:  2^24, so a chunk is 128 MB. */
+  private static final int CHUNK_SHIFT = 24;
+  private static final long CHUNK_ELEMENTS = 1L << CHUNK_SHIFT;
+  private static final long CHUNK_MASK = CHUNK_ELEMENTS - 1;
+
+  private final long size;
+  private ByteBuffer[] chunks;
+  private RandomAccessFile file;
+
+  /** True if the file is a deleted temporary one, never flushed. */
+  private final boolean temporary;
+
+  /**
+   *  Construct a disjoint sets object in memory outside the heap:  a mapping
+   *  of a temporary file, deleted as soon as it is opened, in java.io.tmpdir.
+   *  Unlike direct buffers, mappings do not count against
+   *  -XX:MaxDirectMemorySize, so no JVM flag is needed however many elements
+   *  there are; the file stays sparse until entries are written.
+   *
+   *  @param numElements the number of elements--also the initial number of
+   *  disjoint sets, since every element is initially in its own set.
+   *  @throws UncheckedIOException if the temporary file cannot be created.
+   **/
+  public LongDisjointSets(long numElements) {
+    this(numElements, null);
+  }
+
+  /**
+   *  Construct a disjoint sets object backed by a file, which is created if
+   *  need be and sized to 8 bytes per element.  What the file already holds
+   *  is kept:  a file written by an earlier object of the same size resumes
+   *  with its sets, and a new file starts with every element on its own.
+   *  Entries are in the machine's byte order.
+   *
+   *  @param numElements the number of elements.
+   *  @param path the file to map, or null for a temporary file.
+   *  @throws UncheckedIOException if the file cannot be opened or mapped.
+   **/
+  public LongDisjointSets(long numElements, File path) {
+    size = numElements;
+    chunks = new ByteBuffer[chunkCount(numElements)];
+    temporary = path == null;
+    try {
+      if (temporary) {
+        path = File.createTempFile("LongDisjointSets", ".bin");
+      }
+      file = new RandomAccessFile(path, "rw");
+      if (temporary && !path.delete()) {
+        path.deleteOnExit();        // e.g. Windows, where open files stay
+      }
+      file.setLength(numElements * 8);
+      FileChannel channel = file.getChannel();
+      for (int c = 0; c < chunks.length; c++) {
+        chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                (long) c << (CHUNK_SHIFT + 3), chunkBytes(c))
+            .order(ByteOrder.nativeOrder());
+      }
+    } catch (IOException e) {
+      try {
+        if (file != null) {
+          file.close();
+        }
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static int chunkCount(long numElements) {
+    if (numElements < 0) {
+      throw new IllegalArgumentException("negative size " + numElements);
+    }
+    return (int) ((numElements + CHUNK_MASK) >>> CHUNK_SHIFT);
+  }
+
+  /**
+   *  chunkBytes() returns the size of chunk c:  full, except maybe the last.
+   **/
+  private long chunkBytes(int c) {
+    return 8 * Math.min(CHUNK_ELEMENTS, size - ((long) c << CHUNK_SHIFT));
+  }
+
+  /**
+   *  size() returns the number of elements.
+   **/
+  public long size() {
+    return size;
+  }
+
+  private long get(long x) {
+    return chunks[(int) (x >>> CHUNK_SHIFT)]
+        .getLong((int) (x & CHUNK_MASK) << 3);
+  }
+
+  private void set(long x, long value) {
+    chunks[(int) (x >>> CHUNK_SHIFT)]
+        .putLong((int) (x & CHUNK_MASK) << 3, value);
+  }
+
+  /**
+   *  union() unites two disjoint sets into a single set.  A union-by-size
+   *  heuristic is used to choose the new root.  This method will corrupt
+   *  the data structure if root1 and root2 are not roots of their respective
+   *  sets, or if they're identical.
+   *
+   *  @param root1 the root of the first set.
+   *  @param root2 the root of the other set.
+   **/
+  public void union(long root1, long root2) {
+    // Root entries are 1 - size, so the smaller entry is the larger set.
+    long entry1 = get(root1);
+    long entry2 = get(root2);
+    if (entry2 < entry1) {                             // root2 has larger tree
+      set(root2, entry1 + entry2 - 1);
+      set(root1, root2 + 1);
+    } else {                                  // root1 has equal or larger tree
+      set(root1, entry1 + entry2 - 1);
+      set(root2, root1 + 1);
+    }
+  }
+
+  /**
+   *  unionElements() unites the sets containing elements a and b, which need
+   *  not be roots.  Returns true if they were in different sets.
+   *
+   *  @param a an element of the first set.
+   *  @param b an element of the other set.
+   *  @return true if a merge happened.
+   **/
+  public boolean unionElements(long a, long b) {
+    long root1 = find(a);
+    long root2 = find(b);
+    if (root1 == root2) {
+      return false;
+    }
+    union(root1, root2);
+    return true;
+  }
+
+  /**
+   *  find() finds the (long) name of the set containing a given element.
+   *  Performs path halving along the way.
+   *
+   *  @param x the element sought.
+   *  @return the set containing x.
+   **/
+  public long find(long x) {
+    long entry = get(x);
+    while (entry > 0) {
+      long parent = entry - 1;
+      long parentEntry = get(parent);
+      if (parentEntry <= 0) {
+        return parent;                      // parent is the root; return it
+      }
+      set(x, parentEntry);                 // point x at its grandparent
+      x = parentEntry - 1;
+      entry = get(x);
+    }
+    return x;
+  }
+
+  /**
+   *  setSize() returns the number of elements in the set containing x.
+   **/
+  public long setSize(long x) {
+    return 1 - get(find(x));
+  }
+
+  /**
+   *  flush() writes every change to a backing file through to the disk.  It
+   *  does nothing for sets in a temporary file.
+   **/
+  public void flush() {
+    if (file != null && !temporary) {
+      for (int c = 0; c < chunks.length; c++) {
+        ((MappedByteBuffer) chunks[c]).force();
+      }
+    }
+  }
+
+  /**
+   *  close() closes the file, flushing a caller's file first.  A temporary
+   *  file is truncated to nothing instead, which frees its pages at once.
+   *  This JDK cannot unmap buffers explicitly, so the mappings' address
+   *  space is released when the collector reclaims the buffer objects.
+   **/
+  public void close() {
+    if (file != null) {
+      try {
+        if (temporary) {
+          file.setLength(0);
+        } else {
+          flush();
+        }
+        file.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        file = null;
+      }
+    }
+    chunks = null;
+  }
+
+  /**
+   *  main() is test code.  A few thousand elements spread over several
+   *  chunks of a file-backed object, and of one in a temporary file, are
+   *  united at random, and the sets are compared with a DisjointSets given
+   *  the same unions; then the file is reopened and must hold the same sets.
+   **/
+  public static void main(String[] args) throws IOException {
+    long NumElements = 3 * CHUNK_ELEMENTS + 12345;
+    int NumSampled = 5000;
+
+    // One element from each of NumSampled equal stretches, and the last.
+    Random random = new Random(13);
+    long stride = NumElements / NumSampled;
+    long[] sampled = new long[NumSampled];
+    for (int i = 0; i < NumSampled - 1; i++) {
+      sampled[i] = i * stride + random.nextInt((int) stride);
+    }
+    sampled[NumSampled - 1] = NumElements - 1;
+
+    File path = File.createTempFile("LongDisjointSets", ".bin");
+    path.deleteOnExit();
+    DisjointSets expected = new DisjointSets(NumSampled);
+    int errors = 0;
+    try (LongDisjointSets s = new LongDisjointSets(NumElements, path);
+         LongDisjointSets t = new LongDisjointSets(NumElements)) {
+      for (int k = 0; k < 2 * NumSampled; k++) {
+        int i = random.nextInt(NumSampled);
+        int j = random.nextInt(NumSampled);
+        boolean merged = expected.unionElements(i, j);
+        if (s.unionElements(sampled[i], sampled[j]) != merged) {
+          errors++;
+        }
+        if (t.unionElements(sampled[i], sampled[j]) != merged) {
+          errors++;
+        }
+      }
+    }
+
+    try (LongDisjointSets s = new LongDisjointSets(NumElements, path)) {
+      for (int i = 0; i < NumSampled; i++) {
+        for (int j = i + 1; j < Math.min(NumSampled, i + 50); j++) {
+          boolean together = s.find(sampled[i]) == s.find(sampled[j]);
+          boolean expectedTogether = expected.find(i) == expected.find(j);
+          if (together != expectedTogether) {
+            errors++;
+          }
+        }
+      }
+    }
+    path.delete();
+
+    System.out.println(NumElements + " elements, " + errors + " errors");
+    if (errors > 0) {
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/* RollbackDisjointSets.java */
+
+package set;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  A disjoint sets ADT whose unions can be undone, most recent first, for
+ *  offline and backtracking algorithms.  Performs union-by-size but no path
+ *  compression, so every union changes exactly two entries and trees stay
+ *  at most log2(n) deep.
+ *
+ *  Each union pushes the root it hung below the other, and that root's old
+ *  entry, onto an undo log kept in two int arrays.  checkpoint() returns
+ *  the current length of the log, and rollback() pops and reverses unions
+ *  until the log is that long again.
+ *
+ *  Elements are represented by ints, numbered from zero.
+ **/
+
+public class RollbackDisjointSets {
+
+  private int[] array;
+
+  /**
+   *  Roots that unions hung below another root, oldest first, and their
+   *  entries (minus their sizes) from before.
+   **/
+  private int[] logChild;
+  private int[] logEntry;
+  private int logSize;
+
+  private int setCount;
+
+  /**
+   *  Construct a disjoint sets object.
+   *
+   *  @param numElements the initial number of elements--also the initial
+   *  number of disjoint sets, since every element is initially in its own set.
+   **/
+  public RollbackDisjointSets(int numElements) {
+    array = new int[numElements];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = -1;
+    }
+    logChild = new int[16];
+    logEntry = new int[16];
+    logSize = 0;
+    setCount = numElements;
+  }
+
+  /**
+   *  setCount() returns the number of disjoint sets.
+   **/
+  public int setCount() {
+    return setCount;
+  }
+
+  /**
+   *  union() unites two disjoint sets into a single set.  A union-by-size
+   *  heuristic is used to choose the new root.  This method will corrupt
+   *  the data structure if root1 and root2 are not roots of their respective
+   *  sets, or if they're identical.
+   *
+   *  @param root1 the root of the first set.
+   *  @param root2 the root of the other set.
+   **/
+  public void union(int root1, int root2) {
+    if (array[root2] < array[root1]) {                 // root2 has larger tree
+      int t = root1;
+      root1 = root2;
+      root2 = t;
+    }
+    // Now root1 has the equal or larger tree; hang root2 below it.
+    if (logSize == logChild.length) {
+      logChild = Arrays.copyOf(logChild, 2 * logSize);
+      logEntry = Arrays.copyOf(logEntry, 2 * logSize);
+    }
+    logChild[logSize] = root2;
+    logEntry[logSize] = array[root2];
+    logSize++;
+    array[root1] += array[root2];
+    array[root2] = root1;
+    setCount--;
+  }
+
+  /**
+   *  unionElements() unites the sets containing elements a and b, which need
+   *  not be roots.  Returns true if they were in different sets; if not,
+   *  nothing is logged.
+   *
+   *  @param a an element of the first set.
+   *  @param b an element of the other set.
+   *  @return true if a merge happened.
+   **/
+  public boolean unionElements(int a, int b) {
+    int root1 = find(a);
+    int root2 = find(b);
+    if (root1 == root2) {
+      return false;
+    }
+    union(root1, root2);
+    return true;
+  }
+
+  /**
+   *  find() finds the (int) name of the set containing a given element.  It
+   *  changes nothing.
+   *
+   *  Running time: O(log n).
+   *
+   *  @param x the element sought.
+   *  @return the set containing x.
+   **/
+  public int find(int x) {
+    while (array[x] >= 0) {
+      x = array[x];
+    }
+    return x;
+  }
+
+  /**
+   *  checkpoint() returns a mark that rollback() can return to.  Marks are
+   *  only valid while no rollback has gone back past them.
+   **/
+  public int checkpoint() {
+    return logSize;
+  }
+
+  /**
+   *  rollback() undoes, most recent first, every union made since
+   *  checkpoint() returned "mark".
+   *
+   *  Running time: O(1) per union undone.
+   *
+   *  @param mark a value returned by checkpoint().
+   **/
+  public void rollback(int mark) {
+    if (mark < 0 || mark > logSize) {
+      throw new IllegalArgumentException("bad checkpoint " + mark);
+    }
+    while (logSize > mark) {
+      logSize--;
+      int child = logChild[logSize];
+      int root = array[child];
+      array[child] = logEntry[logSize];
+      array[root] -= logEntry[logSize];
+      setCount++;
+    }
+  }
+
+  /**
+   *  main() is test code.  Random unions are made with checkpoints taken
+   *  along the way; rolling back to each checkpoint, latest first, must give
+   *  exactly the sets a fresh object has after the unions made before it.
+   **/
+  public static void main(String[] args) {
+    int NumElements = 1000;
+    int NumUnions = 3000;
+    int NumCheckpoints = 10;
+
+    Random random = new Random(11);
+    int[] as = new int[NumUnions];
+    int[] bs = new int[NumUnions];
+    for (int i = 0; i < NumUnions; i++) {
+      as[i] = random.nextInt(NumElements);
+      bs[i] = random.nextInt(NumElements);
+    }
+
+    RollbackDisjointSets s = new RollbackDisjointSets(NumElements);
+    int[] marks = new int[NumCheckpoints];
+    int[] madeBefore = new int[NumCheckpoints];
+    int made = 0;
+    for (int c = 0; c < NumCheckpoints; c++) {
+      marks[c] = s.checkpoint();
+      madeBefore[c] = made;
+      int end = (c + 1) * NumUnions / NumCheckpoints;
+      for (; made < end; made++) {
+        s.unionElements(as[made], bs[made]);
+      }
+    }
+
+    int errors = 0;
+    for (int c = NumCheckpoints - 1; c >= 0; c--) {
+      s.rollback(marks[c]);
+      RollbackDisjointSets fresh = new RollbackDisjointSets(NumElements);
+      for (int i = 0; i < madeBefore[c]; i++) {
+        fresh.unionElements(as[i], bs[i]);
+      }
+      if (s.setCount() != fresh.setCount()) {
+        errors++;
+      }
+      // Same roots too:  the same unions in the same order give them.
+      for (int x = 0; x < NumElements; x++) {
+        if (s.find(x) != fresh.find(x) ||
+            s.array[x] != fresh.array[x]) {
+          errors++;
+        }
+      }
+    }
+    System.out.println(NumCheckpoints + " rollbacks, " + errors + " errors");
+    if (errors > 0) {
+      System.exit(1);
+    }
+  }
+}